@@ -15,6 +15,101 @@ api.interceptors.request.use(async (config) => {
     return config;
 }, error => Promise.reject(error));
 
+// --- LISTE PAGINATE (KEYSET) ---
+// Il backend restituisce una pagina alla volta e mette il cursore della successiva in X-Next-Cursor.
+// Scarichiamo solo la pagina richiesta: le successive si caricano su richiesta (LOAD MORE).
+const fetchPage = async (path, cursor = null, size = 50) => {
+    const res = await api.get(path, { params: cursor ? { size, cursor } : { size } });
+    return { items: res.data, next: res.headers['x-next-cursor'] || null };
+};
+
+// --- RUBRICA AGENTI (ETAG) ---
+// Ogni pagina viene ricordata con il suo ETag: al poll successivo inviamo If-None-Match e,
+// se il backend risponde 304, riusiamo la copia locale senza riscaricare la pagina.
+const directoryPages = new Map();
+const fetchAgentDirectory = async (size = 200) => {
+    const agents = [];
+    let cursor = null;
+    do {
+        const key = cursor || '';
+        const cached = directoryPages.get(key);
+        const res = await api.get('/admin/agents/directory', {
+            params: cursor ? { size, cursor } : { size },
+            headers: cached ? { 'If-None-Match': cached.etag } : {},
+            validateStatus: status => (status >= 200 && status < 300) || status === 304,
+        });
+        let page = cached;
+        if (res.status !== 304) {
+            page = { etag: res.headers['etag'], items: res.data, next: res.headers['x-next-cursor'] || null };
+            if (page.etag) directoryPages.set(key, page);
+        }
+        agents.push(...page.items);
+        cursor = page.next;
+    } while (cursor);
+    return agents;
+};
+
+// --- CANALE PUSH (SSE) ---
+// EventSource non permette l'header Authorization: leggiamo lo stream con fetch e lo interpretiamo a mano.
+// Dopo una caduta ci riconnettiamo inviando Last-Event-ID, così il backend rigioca gli eventi persi.
+const subscribeEvents = (onEvent) => {
+    const controller = new AbortController();
+    let lastEventId = null;
+
+    const dispatch = (event) => {
+        if (event.data.length === 0) return;
+        if (event.id) lastEventId = event.id;
+        const raw = event.data.join('\n');
+        let payload;
+        try { payload = JSON.parse(raw); } catch { payload = raw; }
+        onEvent(event.type, payload);
+    };
+
+    const connect = async () => {
+        while (!controller.signal.aborted) {
+            try {
+                await keycloak.updateToken(30);
+                const headers = { Authorization: `Bearer ${keycloak.token}`, Accept: 'text/event-stream' };
+                if (lastEventId) headers['Last-Event-ID'] = lastEventId;
+                const response = await fetch(`${api.defaults.baseURL}/events`, { headers, signal: controller.signal });
+                if (!response.ok || !response.body) throw new Error(`SSE HTTP ${response.status}`);
+
+                const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+                let buffer = '';
+                let event = { type: 'message', id: null, data: [] };
+                for (;;) {
+                    const { value, done } = await reader.read();
+                    if (done) break;
+                    buffer += value;
+                    const lines = buffer.split(/\r?\n/);
+                    buffer = lines.pop();
+                    for (const line of lines) {
+                        if (line === '') {
+                            dispatch(event);
+                            event = { type: 'message', id: null, data: [] };
+                            continue;
+                        }
+                        if (line.startsWith(':')) continue; // heartbeat
+                        const sep = line.indexOf(':');
+                        const field = sep < 0 ? line : line.slice(0, sep);
+                        let value = sep < 0 ? '' : line.slice(sep + 1);
+                        if (value.startsWith(' ')) value = value.slice(1);
+                        if (field === 'event') event.type = value;
+                        else if (field === 'data') event.data.push(value);
+                        else if (field === 'id') event.id = value;
+                    }
+                }
+            } catch (err) {
+                if (controller.signal.aborted) return;
+            }
+            await new Promise(resolve => setTimeout(resolve, 3000));
+        }
+    };
+
+    connect();
+    return () => controller.abort();
+};
+
 // --- PALETTE COLORI DINAMICA ---
 const COLORS_THEMES = {
     GOD: {
@@ -71,6 +166,8 @@ function App() {
     const [adminAgents, setAdminAgents] = useState([]);
     const [selectedAgent, setSelectedAgent] = useState(null);
     const [allMissions, setAllMissions] = useState([]);
+    const [missionsCursor, setMissionsCursor] = useState(null);
+    const resultIdRef = useRef(null);
 
     const token = keycloak.tokenParsed || {};
     const codeName = token.code_name || "Unknown";
@@ -96,6 +193,7 @@ function App() {
     };
 
     useEffect(() => { logsEndRef.current?.scrollIntoView({ behavior: "smooth" }); }, [systemLogs]);
+    useEffect(() => { resultIdRef.current = result?.id; }, [result]);
 
     // SCROLL AUTOMATICO AL DOSSIER
     useEffect(() => {
@@ -112,9 +210,9 @@ function App() {
         addLog("ALERT", `${type.toUpperCase()}: ${message}`);
     };
 
-    // --- INIT & POLLING ---
+    // --- INIT & CANALE PUSH ---
     useEffect(() => {
-        let pollingInterval;
+        let stopEvents;
         if (keycloak.authenticated) {
             addLog("INIT", "SECURE CONNECTION ESTABLISHED");
 
@@ -134,27 +232,60 @@ function App() {
                 addLog("SYNC", `CLEARANCE LEVEL ${res.data.clearanceLevel} CONFIRMED`);
             }).catch(err => console.log("Error syncing profile", err));
 
-            if (isSuperSupervisor) {
-                fetchAdminData(false);
-                pollingInterval = setInterval(() => { fetchAdminData(true); }, 2000);
-            }
+            // Stato iniziale via REST una sola volta, poi solo aggiornamenti push (niente polling)
+            if (isSuperSupervisor) fetchAdminData(false);
+            stopEvents = subscribeEvents(handleLiveEvent);
         }
-        return () => { if (pollingInterval) clearInterval(pollingInterval); };
+        return () => { if (stopEvents) stopEvents(); };
     }, [isSuperSupervisor]);
 
+    const handleLiveEvent = (type, data) => {
+        if (type === 'audit') {
+            const time = new Date(data.timestamp).toISOString().split('T')[1].slice(0, -1);
+            setSystemLogs(prev => [...prev.slice(-49), `[${time}] ${data.actor.toUpperCase()} :: ${data.action} >> ${data.details}`]);
+        } else if (type === 'agent') {
+            if (data.username === token.preferred_username) return;
+            setAdminAgents(prev => [...prev.filter(a => a.username !== data.username), data]
+                .sort((a, b) => a.username.localeCompare(b.username)));
+        } else if (type === 'mission') {
+            if (data.change === 'CREATED' && isSuperSupervisor) {
+                // Missione appena creata: è la più recente, va in testa (stesso ordine del server)
+                api.get(`/missions/${data.missionId}`).then(res => setAllMissions(prev =>
+                    [res.data, ...prev.filter(m => m.id !== res.data.id)])).catch(() => { });
+            }
+            setAllMissions(prev => prev.map(m => {
+                if (m.id !== data.missionId) return m;
+                if (data.change === 'STATUS') return { ...m, status: data.status };
+                if (data.change === 'AGENT_ASSIGNED') return { ...m, assignedAgentIds: [...new Set([...(m.assignedAgentIds || []), data.agentId])] };
+                return m;
+            }));
+            if (resultIdRef.current !== data.missionId) return;
+            if (data.change === 'NOTE_ADDED') {
+                setResult(prev => (prev.notes || []).some(n => n.id === data.note.id) ? prev : { ...prev, notes: [...(prev.notes || []), data.note] });
+            } else if (data.change === 'STATUS') {
+                setResult(prev => ({ ...prev, status: data.status }));
+            } else {
+                api.get(`/missions/${data.missionId}`).then(res => setResult(res.data)).catch(() => { });
+            }
+        } else if (type === 'resync') {
+            if (isSuperSupervisor) fetchAdminData(true);
+        }
+    };
+
     const fetchAdminData = async (isBackground = false) => {
         if (!isBackground) { setIsLoading(true); addLog("ROOT_ACCESS", "DUMPING DATABASE..."); }
 
         try {
-            const agentsRes = await api.get('/admin/agents');
-            setAdminAgents(agentsRes.data.sort((a, b) => a.username.localeCompare(b.username)));
+            // Già ordinata per username dal server
+            setAdminAgents(await fetchAgentDirectory());
         } catch (err) { if (!isBackground) addLog("ERROR", "AGENT FETCH FAIL"); }
 
         try {
-            const missionsRes = await api.get('/missions');
-            const sortedMissions = missionsRes.data.sort((a, b) => a.id.localeCompare(b.id));
-            setAllMissions(sortedMissions);
-            if (!isBackground) addLog("DATA", `RETRIEVED ${missionsRes.data.length} RECORDS`);
+            // Solo la prima pagina (più recenti prima): le altre con LOAD MORE
+            const page = await fetchPage('/missions');
+            setAllMissions(page.items);
+            setMissionsCursor(page.next);
+            if (!isBackground) addLog("DATA", `RETRIEVED ${page.items.length} RECORDS${page.next ? ' (MORE AVAILABLE)' : ''}`);
         } catch (err) { if (!isBackground) addLog("ERROR", "MISSION FETCH FAIL"); }
 
         try {
@@ -169,6 +300,19 @@ function App() {
         if (!isBackground) setIsLoading(false);
     };
 
+    const loadMoreMissions = async () => {
+        if (!missionsCursor) return;
+        setIsLoading(true);
+        try {
+            const page = await fetchPage('/missions', missionsCursor);
+            // Una missione già in lista (es. arrivata via push) non va duplicata
+            setAllMissions(prev => [...prev, ...page.items.filter(m => !prev.some(p => p.id === m.id))]);
+            setMissionsCursor(page.next);
+            addLog("DATA", `RETRIEVED ${page.items.length} MORE RECORDS`);
+        } catch (err) { addLog("ERROR", "MISSION FETCH FAIL"); }
+        finally { setIsLoading(false); }
+    };
+
     // --- OPERAZIONI ---
     const fetchMission = async (idOverride) => {
         const targetId = idOverride || missionId;
@@ -230,7 +374,7 @@ function App() {
         addLog("MSG", "APPENDING TO LEDGER");
         try {
             const response = await api.post(`/missions/${result.id}/notes`, newNote, { headers: { 'Content-Type': 'text/plain' } });
-            setResult(response.data); setNewNote('');
+            setResult(prev => ({ ...prev, notes: [...(prev.notes || []).filter(n => n.id !== response.data.id), response.data] })); setNewNote('');
             showToast("Log aggiornato", "success");
         } catch (err) { showToast("Errore scrittura", "error"); }
         finally { setIsLoading(false); }
@@ -293,9 +437,15 @@ function App() {
         }
     };
 
-    const openAgentDossier = (agent) => {
-        setSelectedAgent(agent);
+    const openAgentDossier = async (agent) => {
         addLog("INTEL", `ACCESSING DOSSIER: ${agent.username.toUpperCase()}`);
+        // Le righe della rubrica sono una proiezione: il dossier completo si carica al momento
+        if (!('matricola' in agent)) {
+            try {
+                agent = (await api.get(`/admin/agents/${agent.username}`)).data;
+            } catch (err) { handleError(err); return; }
+        }
+        setSelectedAgent(agent);
     };
 
     // --- STILI CSS-IN-JS (Aggiornati) ---
@@ -581,6 +731,11 @@ function App() {
                                         ))}
                                     </tbody>
                                 </table>
+                                {missionsCursor && (
+                                    <div style={{ textAlign: 'center', marginTop: '15px' }}>
+                                        <button onClick={loadMoreMissions} disabled={isLoading} style={styles.cyberBtn}>LOAD MORE</button>
+                                    </div>
+                                )}
                                 <div ref={detailsRef}></div>
                                 {result && (<div style={{ marginTop: '30px', borderTop: `1px dashed ${THEME.border}`, paddingTop: '20px' }}><h3 style={{ color: THEME.primary, marginBottom: '20px', letterSpacing: '0.1em' }}>{`>> MISSION_DETAILS`}</h3>{renderMissionDetailCard()}</div>)}
                             </div>
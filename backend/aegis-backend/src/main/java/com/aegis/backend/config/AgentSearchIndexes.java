@@ -0,0 +1,53 @@
+package com.aegis.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indici per la ricerca agenti (AgentProfileRepository.search), creati all'avvio dopo ddl-auto:
+ * <ul>
+ *   <li>GIN pg_trgm su lower(username) e lower(code_name): LIKE '%q%' per query di 3+ caratteri</li>
+ *   <li>B-tree text_pattern_ops sulle stesse espressioni: LIKE 'q%' per le query più corte</li>
+ * </ul>
+ * Se l'estensione pg_trgm non si può creare (permessi) la ricerca funziona lo stesso, ma senza indice trigram.
+ */
+@Component
+public class AgentSearchIndexes {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentSearchIndexes.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AgentSearchIndexes(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        execute("CREATE INDEX IF NOT EXISTS idx_agent_profiles_username_prefix "
+                + "ON agent_profiles (lower(username) text_pattern_ops)");
+        execute("CREATE INDEX IF NOT EXISTS idx_agent_profiles_code_name_prefix "
+                + "ON agent_profiles (lower(code_name) text_pattern_ops)");
+
+        if (!execute("CREATE EXTENSION IF NOT EXISTS pg_trgm")) return;
+        execute("CREATE INDEX IF NOT EXISTS idx_agent_profiles_username_trgm "
+                + "ON agent_profiles USING gin (lower(username) gin_trgm_ops)");
+        execute("CREATE INDEX IF NOT EXISTS idx_agent_profiles_code_name_trgm "
+                + "ON agent_profiles USING gin (lower(code_name) gin_trgm_ops)");
+    }
+
+    private boolean execute(String ddl) {
+        try {
+            jdbcTemplate.execute(ddl);
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Indice ricerca agenti non creato ({}): {}", ddl, e.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+}
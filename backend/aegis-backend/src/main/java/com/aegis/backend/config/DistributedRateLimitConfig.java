@@ -0,0 +1,91 @@
+package com.aegis.backend.config;
+
+import io.github.bucket4j.distributed.jdbc.BucketTableSettings;
+import io.github.bucket4j.distributed.jdbc.PrimaryKeyMapper;
+import io.github.bucket4j.distributed.jdbc.SQLProxyConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.postgresql.PostgreSQLSelectForUpdateBasedProxyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Rate limiting condiviso tra le repliche (aegis.rate-limit.mode: distributed): lo stato dei bucket sta in
+ * PostgreSQL e ogni richiesta lo aggiorna con SELECT ... FOR UPDATE sulla riga della chiave.
+ * <p>
+ * La tabella viene creata all'avvio; un trigger aggiorna updated_at a ogni scrittura e il job di pulizia
+ * elimina le righe inattive da più di max(idle-expiry, refill-period): quei bucket sarebbero comunque pieni.
+ */
+@Configuration
+@ConditionalOnProperty(name = "aegis.rate-limit.mode", havingValue = "distributed")
+public class DistributedRateLimitConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DistributedRateLimitConfig.class);
+
+    private static final Pattern VALID_TABLE = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RateLimitProperties properties;
+    private final String table;
+
+    public DistributedRateLimitConfig(JdbcTemplate jdbcTemplate, RateLimitProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.table = properties.getDistributed().getTable();
+        if (!VALID_TABLE.matcher(table).matches()) {
+            throw new IllegalArgumentException("ERRORE: nome tabella rate limit non valido: " + table);
+        }
+    }
+
+    @Bean
+    public ProxyManager<String> rateLimitProxyManager(DataSource dataSource) {
+        createTable();
+        SQLProxyConfiguration<String> configuration = SQLProxyConfiguration.builder()
+                .withTableSettings(BucketTableSettings.customSettings(table, "id", "state"))
+                .withPrimaryKeyMapper(PrimaryKeyMapper.STRING)
+                .build(dataSource);
+        return new PostgreSQLSelectForUpdateBasedProxyManager<>(configuration);
+    }
+
+    // --- PULIZIA RIGHE INATTIVE ---
+    @Scheduled(fixedDelayString = "${aegis.rate-limit.distributed.cleanup-interval-ms:300000}",
+               initialDelayString = "${aegis.rate-limit.distributed.cleanup-interval-ms:300000}")
+    public void purgeIdleBuckets() {
+        Duration idle = properties.getIdleExpiry().compareTo(properties.getRefillPeriod()) < 0
+                ? properties.getRefillPeriod() : properties.getIdleExpiry();
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM " + table + " WHERE updated_at < now() - make_interval(secs => ?)",
+                idle.toSeconds());
+        if (deleted > 0) {
+            log.debug("Rate limit: eliminati {} bucket inattivi", deleted);
+        }
+    }
+
+    private void createTable() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS %1$s (
+                    id VARCHAR(512) PRIMARY KEY,
+                    state BYTEA,
+                    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+                )""".formatted(table));
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_%1$s_updated_at ON %1$s (updated_at)".formatted(table));
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION %1$s_touch() RETURNS trigger AS $$
+                BEGIN
+                    NEW.updated_at := now();
+                    RETURN NEW;
+                END
+                $$ LANGUAGE plpgsql""".formatted(table));
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE TRIGGER %1$s_touch BEFORE UPDATE ON %1$s
+                FOR EACH ROW EXECUTE FUNCTION %1$s_touch()""".formatted(table));
+    }
+}
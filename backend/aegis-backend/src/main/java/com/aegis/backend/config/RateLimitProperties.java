@@ -0,0 +1,61 @@
+package com.aegis.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parametri del rate limiter (aegis.rate-limit in application.yml).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "aegis.rate-limit")
+public class RateLimitProperties {
+
+    public enum Mode {
+        LOCAL,       // bucket in memoria, limite per singola replica
+        DISTRIBUTED  // bucket in PostgreSQL, limite condiviso da tutte le repliche
+    }
+
+    public enum KeyStrategy {
+        IP,             // un bucket per indirizzo IP
+        SUBJECT,        // un bucket per utente autenticato (IP per le richieste anonime)
+        IP_AND_SUBJECT  // entrambi: la richiesta passa solo se c'è capacità in tutti e due
+    }
+
+    // Gettoni per finestra di ricarica
+    private long capacity = 5000;
+    private Duration refillPeriod = Duration.ofMinutes(1);
+
+    private Mode mode = Mode.LOCAL;
+    private KeyStrategy key = KeyStrategy.IP;
+
+    // Limite di memoria: numero massimo di bucket e scadenza dopo inattività
+    private long maxBuckets = 100_000;
+    private Duration idleExpiry = Duration.ofMinutes(10);
+
+    // Costo di default e costi per endpoint (la prima regola che corrisponde vince)
+    private long defaultCost = 1;
+    private List<EndpointCost> costs = new ArrayList<>();
+
+    private Distributed distributed = new Distributed();
+
+    @Data
+    public static class EndpointCost {
+        private String method;   // null = tutti i metodi
+        private String pattern;  // es. /api/intel/missions/*/attachment
+        private long cost;
+    }
+
+    @Data
+    public static class Distributed {
+        private String table = "rate_limit_buckets";
+        // Pre-fetch locale: ogni replica consuma fino a N gettoni (o per al massimo T) prima di sincronizzarsi col DB
+        private long maxUnsynchronizedTokens = 50;
+        private Duration maxUnsynchronizedTimeout = Duration.ofMillis(500);
+    }
+}
@@ -0,0 +1,44 @@
+package com.aegis.backend.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * /actuator/l2cache: statistiche per regione della cache di secondo livello Hibernate
+ * (richiede hibernate.generate_statistics). Contatori cumulativi dall'avvio.
+ */
+@Component
+@Endpoint(id = "l2cache")
+public class SecondLevelCacheEndpoint {
+
+    public record RegionStats(long hits, long misses, long puts, long elementsInMemory, double hitRatio) {}
+
+    private final Statistics statistics;
+
+    public SecondLevelCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, RegionStats> regions() {
+        Map<String, RegionStats> regions = new TreeMap<>();
+        Arrays.stream(statistics.getSecondLevelCacheRegionNames()).forEach(name -> {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(name);
+            long hits = region.getHitCount();
+            long misses = region.getMissCount();
+            long requests = hits + misses;
+            regions.put(name, new RegionStats(hits, misses, region.getPutCount(),
+                    region.getElementCountInMemory(), requests == 0 ? 0.0 : (double) hits / requests));
+        });
+        return regions;
+    }
+}
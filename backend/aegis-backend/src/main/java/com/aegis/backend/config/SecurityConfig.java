@@ -1,5 +1,14 @@
 package com.aegis.backend.config;
 
+import com.aegis.backend.security.VerifiedTokenCache;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -11,10 +20,16 @@ import org.springframework.security.oauth2.server.resource.authentication.JwtAut
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -26,7 +41,7 @@ import java.util.stream.Collectors;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, VerifiedTokenCache tokenCache) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -47,15 +62,56 @@ public class SecurityConfig {
 
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/health").permitAll()
+                        // Metriche e statistiche cache/Hibernate: solo Super Supervisor
+                        .requestMatchers("/actuator/**").hasRole("SUPER_SUPERVISOR")
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(new KeycloakRoleConverter()))
+                        .jwt(jwt -> jwt.jwtAuthenticationConverter(tokenCache.converter(new KeycloakRoleConverter())))
                 );
 
         return http.build();
     }
 
+    // 3. VERIFICA JWT: firma controllata una sola volta per token (VerifiedTokenCache).
+    // Le chiavi di Keycloak sono in cache e vengono rinnovate in anticipo da un thread in background,
+    // così una risposta lenta del JWK endpoint non blocca le richieste; se Keycloak non risponde si
+    // continuano a usare le ultime chiavi note per outage-tolerance.
+    // Bean a sé: alla chiusura del contesto Spring chiama close() e ferma il thread di rinnovo
+    @Bean
+    public JWKSource<SecurityContext> keycloakJwkSource(
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${aegis.jwk.ttl:15m}") Duration ttl,
+            @Value("${aegis.jwk.refresh-ahead:2m}") Duration refreshAhead,
+            @Value("${aegis.jwk.timeout:3s}") Duration timeout,
+            @Value("${aegis.jwk.outage-tolerance:1h}") Duration outageTolerance) throws MalformedURLException {
+
+        DefaultResourceRetriever retriever = new DefaultResourceRetriever(
+                (int) timeout.toMillis(), (int) timeout.toMillis(), 512 * 1024);
+        return JWKSourceBuilder.create(URI.create(jwkSetUri).toURL(), retriever)
+                .cache(ttl.toMillis(), timeout.toMillis())
+                .refreshAheadCache(refreshAhead.toMillis(), true)
+                .outageTolerant(outageTolerance.toMillis())
+                .build();
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(
+            VerifiedTokenCache tokenCache,
+            JWKSource<SecurityContext> keycloakJwkSource,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri) {
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, keycloakJwkSource));
+        // Le claim (exp, nbf, iss) le valida Spring con i JwtValidators, come fa il decoder di default
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder verifier = new NimbusJwtDecoder(processor);
+        verifier.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return tokenCache.decoder(verifier);
+    }
+
     // DEFINIZIONE REGOLE CORS
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
@@ -63,7 +119,10 @@ public class SecurityConfig {
         // Permettiamo solo al frontend di React di chiamarci
         configuration.setAllowedOrigins(List.of("https://localhost:5173"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        // Last-Event-ID: ripresa del canale SSE dopo una riconnessione; If-None-Match: rubrica agenti con ETag
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Last-Event-ID", "If-None-Match"));
+        // Il frontend deve poter leggere il cursore della paginazione e l'ETag
+        configuration.setExposedHeaders(List.of("X-Next-Cursor", "ETag"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
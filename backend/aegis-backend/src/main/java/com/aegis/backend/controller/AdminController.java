@@ -1,15 +1,22 @@
 package com.aegis.backend.controller;
 
+import com.aegis.backend.dto.AgentDirectoryEntryDTO;
 import com.aegis.backend.model.AgentProfile;
 import com.aegis.backend.repository.AgentProfileRepository;
+import com.aegis.backend.service.AgentDirectoryVersion;
+import com.aegis.backend.service.EventBroadcaster;
+import com.aegis.backend.service.ProfileSyncCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/intel/admin")
@@ -17,18 +24,60 @@ import java.util.stream.Collectors;
 public class AdminController {
 
     private final AgentProfileRepository agentRepository;
+    private final ProfileSyncCache profileSyncCache;
+    private final EventBroadcaster events;
+    private final AgentDirectoryVersion directoryVersion;
+
+    private static final int MAX_DIRECTORY_PAGE_SIZE = 1000;
 
     // 1. LISTA COMPLETA AGENTI (Escluso me stesso)
     // Utilizza controlli multipli per gestire diverse configurazioni dei ruoli (con/senza prefisso ROLE_)
+    // Stessa proiezione della rubrica, non paginata: la console usa /agents/directory, questa resta per compatibilità.
     @GetMapping("/agents")
     @PreAuthorize("hasAuthority('SUPER_SUPERVISOR') or hasRole('SUPER_SUPERVISOR') or hasAuthority('ROLE_SUPER_SUPERVISOR')")
-    public List<AgentProfile> getAllAgents(Authentication auth) {
-        String myUsername = auth.getName();
+    public List<AgentDirectoryEntryDTO> getAllAgents(Authentication auth) {
+        // Filtro di sicurezza: escludi te stesso dalla lista per evitare auto-modifiche distruttive (in query)
+        return agentRepository.findDirectoryPage(auth.getName(), "", Limit.unlimited());
+    }
 
-        return agentRepository.findAll().stream()
-                // Filtro di sicurezza: escludi te stesso dalla lista per evitare auto-modifiche distruttive
-                .filter(agent -> !agent.getUsername().equals(myUsername))
-                .collect(Collectors.toList());
+    // 1a. DOSSIER COMPLETO DI UN AGENTE (la rubrica contiene solo i campi della tabella)
+    @GetMapping("/agents/{username}")
+    @PreAuthorize("hasAuthority('SUPER_SUPERVISOR') or hasRole('SUPER_SUPERVISOR') or hasAuthority('ROLE_SUPER_SUPERVISOR')")
+    public AgentProfile getAgent(@PathVariable String username) {
+        return agentRepository.findById(username)
+                .orElseThrow(() -> new RuntimeException("Agente non trovato"));
+    }
+
+    // 1b. RUBRICA AGENTI (paginata keyset, proiezione leggera, ETag)
+    // Il cursore della pagina successiva (ultimo username) viaggia nell'header X-Next-Cursor.
+    // Con If-None-Match uguale alla versione corrente risponde 304 senza interrogare il DB.
+    @GetMapping("/agents/directory")
+    @PreAuthorize("hasAuthority('SUPER_SUPERVISOR') or hasRole('SUPER_SUPERVISOR') or hasAuthority('ROLE_SUPER_SUPERVISOR')")
+    public ResponseEntity<List<AgentDirectoryEntryDTO>> getAgentDirectory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "200") int size,
+            Authentication auth,
+            WebRequest request) {
+        int pageSize = Math.max(1, Math.min(size, MAX_DIRECTORY_PAGE_SIZE));
+        String after = cursor != null ? cursor : "";
+
+        // Versione letta prima della query: se cambia durante la lettura, il prossimo poll riscarica
+        String etag = directoryVersion.etag(auth.getName(), after, pageSize);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        // Chiediamo un elemento in più per sapere se esiste una pagina successiva
+        List<AgentDirectoryEntryDTO> rows = agentRepository.findDirectoryPage(auth.getName(), after, Limit.of(pageSize + 1));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            response.header(MissionController.NEXT_CURSOR_HEADER, rows.get(pageSize - 1).username());
+        }
+        return response.body(rows);
     }
 
     // 2. MODIFICA CLEARANCE (Potere Assoluto)
@@ -39,6 +88,12 @@ public class AdminController {
                 .orElseThrow(() -> new RuntimeException("Agente non trovato"));
 
         agent.setClearanceLevel(newLevel);
-        return ResponseEntity.ok(agentRepository.save(agent));
+        AgentProfile saved = agentRepository.save(agent);
+        directoryVersion.bump();
+
+        // Il profilo è cambiato fuori dal token: la prossima richiesta dell'agente deve risincronizzare
+        profileSyncCache.invalidate(username);
+        events.publishAgent(saved);
+        return ResponseEntity.ok(saved);
     }
 }
\ No newline at end of file
@@ -1,15 +1,17 @@
 package com.aegis.backend.controller;
 
+import com.aegis.backend.dto.AgentSearchCursor;
 import com.aegis.backend.model.AgentProfile;
 import com.aegis.backend.repository.AgentProfileRepository;
 import com.aegis.backend.service.MissionService; // <--- NUOVO IMPORT
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/intel/agents")
@@ -19,6 +21,12 @@ public class AgentController {
     private final AgentProfileRepository repository;
     private final MissionService missionService; // <--- AGGIUNTO per la logica di salvataggio
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
+    // Sotto questa lunghezza i trigrammi non aiutano: solo ricerca per prefisso (indice B-tree).
+    // Una sottostringa di 1-2 caratteri non è indicizzabile: costerebbe una scansione completa a ogni tasto
+    private static final int MIN_CONTAINS_LENGTH = 3;
+
     /**
      * METODO DI SINCRONIZZAZIONE (VERSIONE DIAGNOSTICA)
      * Stampa in console i dati grezzi del token per debuggare il problema del LVL-0.
@@ -89,17 +97,43 @@ public class AgentController {
                 .orElseThrow(() -> new RuntimeException("Profilo non trovato nel registro locale."));
     }
 
-    // 2. RICERCA AGENTI (Codice originale intatto)
+    // 2. RICERCA AGENTI (indicizzata, ordinata per rilevanza, paginata keyset)
+    // Il corpo resta un array JSON; il cursore della pagina successiva viaggia nell'header X-Next-Cursor.
+    // Query di 3+ caratteri: sottostringa di username o codeName ("ross" trova "paolo.rossi").
+    // Query di 1-2 caratteri: solo inizio di username o codeName ("ro" trova "rossi.mario", non "paolo.rossi").
     @GetMapping("/search")
     @PreAuthorize("hasRole('SUPERVISOR') or hasRole('SUPER_SUPERVISOR')")
-    public List<AgentProfile> searchAgents(@RequestParam String query, JwtAuthenticationToken auth) {
-        String q = query.toLowerCase();
-        String myUsername = auth.getName();
-
-        return repository.findAll().stream()
-                .filter(a -> (a.getUsername().toLowerCase().contains(q) ||
-                        a.getCodeName().toLowerCase().contains(q)) &&
-                        !a.getUsername().equals(myUsername))
-                .collect(Collectors.toList());
+    public ResponseEntity<List<AgentProfile>> searchAgents(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            JwtAuthenticationToken auth) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        AgentSearchCursor after = AgentSearchCursor.parse(cursor);
+
+        String escaped = escapeLike(q);
+        String prefix = escaped + "%";
+        String pattern = q.length() < MIN_CONTAINS_LENGTH ? prefix : "%" + escaped + "%";
+
+        // Chiediamo un elemento in più per sapere se esiste una pagina successiva
+        List<AgentProfile> rows = repository.search(q, prefix, pattern, auth.getName(),
+                after.rank(), after.username(), pageSize + 1);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            AgentProfile last = rows.get(pageSize - 1);
+            int rank = AgentSearchCursor.rankOf(q,
+                    last.getUsername().toLowerCase(Locale.ROOT),
+                    last.getCodeName() != null ? last.getCodeName().toLowerCase(Locale.ROOT) : null);
+            response.header(MissionController.NEXT_CURSOR_HEADER, new AgentSearchCursor(rank, last.getUsername()).toString());
+        }
+        return response.body(rows);
+    }
+
+    // I caratteri jolly digitati dall'utente vanno cercati letteralmente (escape di default di LIKE: \)
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
\ No newline at end of file
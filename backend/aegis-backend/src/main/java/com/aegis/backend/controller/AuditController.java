@@ -1,13 +1,20 @@
 package com.aegis.backend.controller;
 
+import com.aegis.backend.dto.AuditCursor;
+import com.aegis.backend.dto.AuditFilter;
+import com.aegis.backend.dto.AuditPageDTO;
 import com.aegis.backend.model.AuditLog;
 import com.aegis.backend.service.AuditService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -18,9 +25,26 @@ public class AuditController {
     private final AuditService auditService;
 
     // Solo il God Mode può leggere la Black Box
+    // Senza parametri restituisce gli ultimi 50 eventi; filtri opzionali per attore, azione, IP e finestra temporale.
+    // Il cursore della pagina successiva viaggia nell'header X-Next-Cursor
     @GetMapping
     @PreAuthorize("hasRole('SUPER_SUPERVISOR')")
-    public List<AuditLog> getSystemLogs() {
-        return auditService.getRecentLogs();
+    public ResponseEntity<List<AuditLog>> getSystemLogs(
+            @RequestParam(required = false) String actor,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String ip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+
+        AuditFilter filter = new AuditFilter(actor, action, ip, from, to);
+        AuditPageDTO page = auditService.search(filter, AuditCursor.parse(cursor), size);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(MissionController.NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.logs());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.aegis.backend.controller;
+
+import com.aegis.backend.service.EventBroadcaster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/intel/events")
+@RequiredArgsConstructor
+public class EventController {
+
+    private final EventBroadcaster events;
+
+    // Canale push (Server-Sent Events) al posto del polling delle console.
+    // Ognuno riceve solo ciò che può vedere: audit e agenti solo il Super Supervisor,
+    // le missioni anche owner e agenti assegnati. Last-Event-ID riprende dopo una disconnessione.
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public SseEmitter subscribe(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            JwtAuthenticationToken auth) {
+        return events.subscribe(auth.getName(), isSuperSupervisor(auth), lastEventId);
+    }
+
+    private boolean isSuperSupervisor(JwtAuthenticationToken auth) {
+        return auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> role.equals("SUPER_SUPERVISOR") || role.equals("ROLE_SUPER_SUPERVISOR"));
+    }
+}
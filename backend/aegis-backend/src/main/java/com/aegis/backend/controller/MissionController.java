@@ -1,13 +1,18 @@
 package com.aegis.backend.controller;
 
+import com.aegis.backend.dto.MissionCursor;
 import com.aegis.backend.dto.MissionDTO;
+import com.aegis.backend.dto.MissionFilter;
+import com.aegis.backend.dto.MissionPageDTO;
+import com.aegis.backend.dto.NoteCursor;
+import com.aegis.backend.dto.NoteDTO;
+import com.aegis.backend.dto.NotePageDTO;
 import com.aegis.backend.model.MissionStatus;
 import com.aegis.backend.service.AuditService;
 import com.aegis.backend.service.MissionService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,6 +23,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -27,6 +33,8 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class MissionController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final MissionService service;
     private final AuditService auditService;
 
@@ -67,6 +75,12 @@ public class MissionController {
                 .anyMatch(role -> role.contains("SUPERVISOR"));
     }
 
+    private boolean isSuperSupervisor(JwtAuthenticationToken auth) {
+        return auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> role.equals("SUPER_SUPERVISOR") || role.equals("ROLE_SUPER_SUPERVISOR"));
+    }
+
     // 1. Creazione Missione
     @PostMapping
     @PreAuthorize("hasRole('SUPERVISOR') or hasRole('SUPER_SUPERVISOR')")
@@ -101,13 +115,34 @@ public class MissionController {
         return ResponseEntity.ok(service.getMission(id, supervisor));
     }
 
-    // 3. Lista Tutte
+    // 3. Lista Missioni (paginata keyset + filtri lato server, più recenti prima)
+    // Il corpo resta un array JSON; il cursore della pagina successiva viaggia nell'header X-Next-Cursor:
+    // finché l'header è presente la lista NON è completa e il client deve richiedere la pagina successiva
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<MissionDTO>> listMissions(JwtAuthenticationToken auth) {
+    public ResponseEntity<List<MissionDTO>> listMissions(
+            @RequestParam(required = false) MissionStatus status,
+            @RequestParam(required = false) String geographicZone,
+            @RequestParam(required = false) Integer clearanceLevel,
+            @RequestParam(required = false) String owner,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            JwtAuthenticationToken auth) {
         syncUser(auth);
         boolean supervisor = isSupervisor(auth);
-        return ResponseEntity.ok(service.getAllMissions(supervisor));
+
+        // Stessa regola di GET /{id}: il Super Supervisor vede tutto, gli altri solo le missioni
+        // di cui sono owner o a cui sono assegnati (filtro applicato nella query)
+        String viewerId = isSuperSupervisor(auth) ? null : auth.getName();
+
+        MissionFilter filter = new MissionFilter(status, geographicZone, clearanceLevel, owner);
+        MissionPageDTO page = service.listMissions(filter, MissionCursor.parse(cursor), size, viewerId, supervisor);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.missions());
     }
 
     // 4. Modifica Stato (AGGIORNATO: Logica permessi robusta + Debug)
@@ -164,38 +199,39 @@ public class MissionController {
         return ResponseEntity.ok(updated);
     }
 
-    // 7. Download con Watermark
+    // 7. Download con Watermark (in streaming: il PDF marcato viene scritto direttamente sulla risposta)
     @GetMapping("/{id}/attachment")
     @PreAuthorize("hasAuthority('SUPER_SUPERVISOR') or hasRole('SUPER_SUPERVISOR') or @securityService.canAccessMission(#id, authentication)")
-    public ResponseEntity<Resource> downloadAttachment(
+    public ResponseEntity<StreamingResponseBody> downloadAttachment(
             @PathVariable UUID id,
             JwtAuthenticationToken auth,
             HttpServletRequest request) {
 
         syncUser(auth);
-        MissionDTO mission = service.getMission(id, false);
+        // Serve solo il nome del file: proiezione, non l'intera missione
+        String filename = service.getAttachmentFilename(id).orElse(null);
 
-        if (mission.attachmentFilename() == null) {
+        if (filename == null) {
             return ResponseEntity.notFound().build();
         }
 
         String matricola = auth.getToken().getClaimAsString("matricola");
         String identity = (matricola != null) ? matricola : auth.getName();
 
-        Resource resource = service.loadFileWithWatermark(mission.attachmentFilename(), identity);
+        StreamingResponseBody body = out -> service.writeFileWithWatermark(filename, identity, out);
 
-        auditService.log(auth.getName(), "DOWNLOAD_FILE", "Download sicuro file: " + mission.attachmentFilename(), request.getRemoteAddr());
+        auditService.log(auth.getName(), "DOWNLOAD_FILE", "Download sicuro file: " + filename, request.getRemoteAddr());
 
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + mission.attachmentFilename() + "\"")
-                .body(resource);
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
+                .body(body);
     }
 
     // 8. Aggiunta Nota 
     @PostMapping("/{id}/notes")
     @PreAuthorize("hasAnyAuthority('SUPER_SUPERVISOR', 'ROLE_SUPER_SUPERVISOR') or (hasAnyAuthority('SUPERVISOR', 'ROLE_SUPERVISOR') and @securityService.canAccessMission(#id, authentication))")
-    public ResponseEntity<MissionDTO> addNote(
+    public ResponseEntity<NoteDTO> addNote(
             @PathVariable UUID id,
             @RequestBody String content,
             JwtAuthenticationToken auth,
@@ -203,10 +239,30 @@ public class MissionController {
 
         syncUser(auth);
         String cleanContent = content.replaceAll("^\"|\"$", "").replace("\\n", "\n");
-        MissionDTO updated = service.addNote(id, cleanContent, auth.getName());
+        NoteDTO created = service.addNote(id, cleanContent, auth.getName());
 
         auditService.log(auth.getName(), "ADD_NOTE", "Nota operativa aggiunta a " + id, request.getRemoteAddr());
 
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok(created);
+    }
+
+    // 9. Feed Note (incrementale: solo le note successive al cursore)
+    // Il cursore della pagina successiva viaggia nell'header X-Next-Cursor; senza header il client è aggiornato
+    // e può usare timestamp_id dell'ultima nota ricevuta come cursore per la prossima richiesta
+    @GetMapping("/{id}/notes")
+    @PreAuthorize("hasAuthority('SUPER_SUPERVISOR') or hasRole('SUPER_SUPERVISOR') or @securityService.canAccessMission(#id, authentication)")
+    public ResponseEntity<List<NoteDTO>> listNotes(
+            @PathVariable UUID id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            JwtAuthenticationToken auth) {
+        syncUser(auth);
+        NotePageDTO page = service.listNotes(id, NoteCursor.parse(cursor), size);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.notes());
     }
 }
\ No newline at end of file
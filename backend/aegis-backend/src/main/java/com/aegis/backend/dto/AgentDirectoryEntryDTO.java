@@ -0,0 +1,11 @@
+package com.aegis.backend.dto;
+
+/**
+ * Voce della rubrica agenti per la console admin: solo i campi mostrati in tabella, non l'intera entità.
+ */
+public record AgentDirectoryEntryDTO(
+        String username,
+        String codeName,
+        Integer clearanceLevel,
+        String department
+) {}
@@ -0,0 +1,40 @@
+package com.aegis.backend.dto;
+
+/**
+ * Cursore keyset della ricerca agenti: (rank della corrispondenza, username) dell'ultimo risultato ricevuto.
+ * Rank: 0 = uguale, 1 = inizia con, 2 = contiene (su username o codeName).
+ * Formato testuale opaco per il client: "<rank>_<username>".
+ */
+public record AgentSearchCursor(int rank, String username) {
+
+    public static final int EXACT = 0;
+    public static final int PREFIX = 1;
+    public static final int CONTAINS = 2;
+
+    /** Posizione prima del primo risultato. */
+    public static final AgentSearchCursor START = new AgentSearchCursor(-1, "");
+
+    public static AgentSearchCursor parse(String value) {
+        if (value == null || value.isBlank()) return START;
+        int separator = value.indexOf('_');
+        try {
+            int rank = Integer.parseInt(value.substring(0, separator));
+            if (rank < EXACT || rank > CONTAINS) throw new IllegalArgumentException();
+            return new AgentSearchCursor(rank, value.substring(separator + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("ERRORE: cursore di ricerca non valido.", e);
+        }
+    }
+
+    /** Stesso calcolo del CASE nella query di ricerca (valori già in minuscolo). */
+    public static int rankOf(String query, String username, String codeName) {
+        if (query.equals(username) || query.equals(codeName)) return EXACT;
+        if (username.startsWith(query) || (codeName != null && codeName.startsWith(query))) return PREFIX;
+        return CONTAINS;
+    }
+
+    @Override
+    public String toString() {
+        return rank + "_" + username;
+    }
+}
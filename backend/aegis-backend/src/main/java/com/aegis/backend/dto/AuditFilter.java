@@ -0,0 +1,12 @@
+package com.aegis.backend.dto;
+
+import java.time.LocalDateTime;
+
+// Filtri opzionali della Black Box: i campi null non vengono applicati. Intervallo [from, to)
+public record AuditFilter(
+        String actor,
+        String action,
+        String ipAddress,
+        LocalDateTime from,
+        LocalDateTime to
+) {}
@@ -0,0 +1,12 @@
+package com.aegis.backend.dto;
+
+import com.aegis.backend.model.AuditLog;
+
+import java.util.List;
+
+public record AuditPageDTO(
+        List<AuditLog> logs,
+
+        // Cursore della pagina successiva (null = ultima pagina)
+        AuditCursor nextCursor
+) {}
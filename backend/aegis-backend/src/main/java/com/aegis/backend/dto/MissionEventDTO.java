@@ -0,0 +1,23 @@
+package com.aegis.backend.dto;
+
+import com.aegis.backend.model.MissionStatus;
+
+import java.util.UUID;
+
+/**
+ * Variazione di una missione inviata sul canale SSE. Solo i campi pertinenti al tipo di cambiamento
+ * sono valorizzati (CREATED/STATUS: status, AGENT_ASSIGNED: agentId, NOTE_ADDED: note).
+ */
+public record MissionEventDTO(
+        UUID missionId,
+        String change,
+        MissionStatus status,
+        String agentId,
+        NoteDTO note
+) {
+    public static final String CREATED = "CREATED";
+    public static final String STATUS = "STATUS";
+    public static final String AGENT_ASSIGNED = "AGENT_ASSIGNED";
+    public static final String NOTE_ADDED = "NOTE_ADDED";
+    public static final String ATTACHMENT = "ATTACHMENT";
+}
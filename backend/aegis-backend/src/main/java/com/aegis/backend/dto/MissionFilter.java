@@ -0,0 +1,11 @@
+package com.aegis.backend.dto;
+
+import com.aegis.backend.model.MissionStatus;
+
+// Filtri opzionali della lista missioni: i campi null non vengono applicati
+public record MissionFilter(
+        MissionStatus status,
+        String geographicZone,
+        Integer clearanceLevel,
+        String ownerId
+) {}
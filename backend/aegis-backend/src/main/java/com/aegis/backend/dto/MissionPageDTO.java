@@ -0,0 +1,10 @@
+package com.aegis.backend.dto;
+
+import java.util.List;
+
+public record MissionPageDTO(
+        List<MissionDTO> missions,
+
+        // (createdAt, id) dell'ultima missione della pagina, da ripassare come cursore (null = ultima pagina)
+        MissionCursor nextCursor
+) {}
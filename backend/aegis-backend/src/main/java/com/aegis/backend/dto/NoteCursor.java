@@ -0,0 +1,29 @@
+package com.aegis.backend.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+/**
+ * Cursore keyset sulla coppia (timestamp, id) dell'ultima nota ricevuta dal client.
+ * Formato testuale opaco per il client: "<timestamp ISO>_<uuid>".
+ */
+public record NoteCursor(LocalDateTime timestamp, UUID id) {
+
+    public static NoteCursor parse(String value) {
+        if (value == null || value.isBlank()) return null;
+        int separator = value.lastIndexOf('_');
+        try {
+            return new NoteCursor(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    UUID.fromString(value.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("ERRORE: cursore delle note non valido.", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return timestamp + "_" + id;
+    }
+}
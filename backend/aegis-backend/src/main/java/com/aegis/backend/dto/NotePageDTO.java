@@ -0,0 +1,10 @@
+package com.aegis.backend.dto;
+
+import java.util.List;
+
+public record NotePageDTO(
+        List<NoteDTO> notes,
+
+        // Cursore della pagina successiva (null = il client è aggiornato)
+        NoteCursor nextCursor
+) {}
@@ -1,15 +1,21 @@
 package com.aegis.backend.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Data
 @Table(name = "agent_profiles")
+// Cache L2 (regione agentProfiles in application.conf): aggiornata da Hibernate a ogni save
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "agentProfiles")
 @AllArgsConstructor
 @NoArgsConstructor
 public class AgentProfile {
@@ -11,7 +11,13 @@ import java.util.UUID;
 @Entity
 @Data
 @NoArgsConstructor
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+        // Keyset (timestamp, id) per la paginazione e varianti con il filtro in testa
+        @Index(name = "idx_audit_timestamp_id", columnList = "timestamp, id"),
+        @Index(name = "idx_audit_actor_timestamp_id", columnList = "actor, timestamp, id"),
+        @Index(name = "idx_audit_action_timestamp_id", columnList = "action, timestamp, id"),
+        @Index(name = "idx_audit_ip_timestamp_id", columnList = "ipAddress, timestamp, id")
+})
 public class AuditLog {
     @Id
     @GeneratedValue
@@ -2,13 +2,27 @@ package com.aegis.backend.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.Set;
 import java.util.HashSet;
 
 @Entity
 @Data
-@Table(name = "missions")
+@Table(name = "missions", indexes = {
+        // Indici composti (filtro, createdAt, id) per la paginazione keyset della lista missioni (più recenti prima)
+        @Index(name = "idx_missions_created_id", columnList = "createdAt, id"),
+        @Index(name = "idx_missions_status_created_id", columnList = "status, createdAt, id"),
+        @Index(name = "idx_missions_zone_created_id", columnList = "geographicZone, createdAt, id"),
+        @Index(name = "idx_missions_clearance_created_id", columnList = "clearanceLevel, createdAt, id"),
+        @Index(name = "idx_missions_owner_created_id", columnList = "ownerId, createdAt, id"),
+        // Conteggio riferimenti dei blob allegati (garbage collector)
+        @Index(name = "idx_missions_attachment", columnList = "attachmentFilename")
+})
 public class Mission {
 
     @Id
@@ -35,9 +49,18 @@ public class Mission {
 
     private String attachmentFilename;
 
+    // Data di creazione: ordinamento della lista. Le missioni esistenti prima della colonna ricevono now()
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("now()")
+    private LocalDateTime createdAt;
+
     // [cite: 38] Utenti assegnati alla missione (Lista di ID Keycloak)
     @ElementCollection
-    @CollectionTable(name = "mission_agents", joinColumns = @JoinColumn(name = "mission_id"))
+    @CollectionTable(name = "mission_agents", joinColumns = @JoinColumn(name = "mission_id"),
+            // Indice per la ricerca inversa "missioni dell'agente X" (filtro di visibilità)
+            indexes = @Index(name = "idx_mission_agents_agent", columnList = "agent_id"))
     @Column(name = "agent_id")
+    // Cache L2 della collezione (regione missionAgents in application.conf)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "missionAgents")
     private Set<String> assignedAgentIds = new HashSet<>();
 }
\ No newline at end of file
@@ -9,7 +9,10 @@ import java.util.UUID;
 @Entity
 @Data
 @NoArgsConstructor
-@Table(name = "mission_notes")
+@Table(name = "mission_notes", indexes = {
+        // Feed delle note di una missione: filtro + keyset (timestamp, id)
+        @Index(name = "idx_mission_notes_mission_timestamp_id", columnList = "missionId, timestamp, id")
+})
 public class MissionNote {
     @Id
     @GeneratedValue
@@ -1,7 +1,51 @@
 package com.aegis.backend.repository;
 
+import com.aegis.backend.dto.AgentDirectoryEntryDTO;
 import com.aegis.backend.model.AgentProfile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface AgentProfileRepository extends JpaRepository<AgentProfile, String> {
-}
\ No newline at end of file
+import java.util.List;
+
+public interface AgentProfileRepository extends JpaRepository<AgentProfile, String>, AgentProfileRepositoryCustom {
+
+    // Rubrica admin: proiezione leggera, chiamante escluso in query, keyset su username (chiave primaria)
+    @Query("""
+            select new com.aegis.backend.dto.AgentDirectoryEntryDTO(a.username, a.codeName, a.clearanceLevel, a.department)
+            from AgentProfile a
+            where a.username <> :excluded and a.username > :after
+            order by a.username
+            """)
+    List<AgentDirectoryEntryDTO> findDirectoryPage(@Param("excluded") String excluded,
+                                                   @Param("after") String after,
+                                                   Limit limit);
+
+    /**
+     * Ricerca per username/codeName (case-insensitive), ordinata per rank (uguale, inizia con, contiene)
+     * e poi username, a pagine keyset dopo (afterRank, afterUsername).
+     * pattern è già un LIKE escapato ("q%" o "%q%"): usa gli indici su lower(...) di AgentSearchIndexes.
+     */
+    @Query(value = """
+            SELECT r.* FROM (
+                SELECT p.*,
+                       CASE WHEN lower(p.username) = :query OR lower(p.code_name) = :query THEN 0
+                            WHEN lower(p.username) LIKE :prefix OR lower(p.code_name) LIKE :prefix THEN 1
+                            ELSE 2 END AS match_rank
+                FROM agent_profiles p
+                WHERE (lower(p.username) LIKE :pattern OR lower(p.code_name) LIKE :pattern)
+                  AND p.username <> :excluded
+            ) r
+            WHERE r.match_rank > :afterRank OR (r.match_rank = :afterRank AND r.username > :afterUsername)
+            ORDER BY r.match_rank, r.username
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<AgentProfile> search(@Param("query") String query,
+                              @Param("prefix") String prefix,
+                              @Param("pattern") String pattern,
+                              @Param("excluded") String excluded,
+                              @Param("afterRank") int afterRank,
+                              @Param("afterUsername") String afterUsername,
+                              @Param("limit") int limit);
+}
@@ -0,0 +1,12 @@
+package com.aegis.backend.repository;
+
+import com.aegis.backend.model.AgentProfile;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface AgentProfileRepositoryCustom {
+
+    // Come findAllById, ma passa dalla cache di secondo livello: in DB vanno solo gli id non in cache
+    List<AgentProfile> loadAllById(Collection<String> usernames);
+}
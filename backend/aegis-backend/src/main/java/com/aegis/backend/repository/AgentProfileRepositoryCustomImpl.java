@@ -0,0 +1,28 @@
+package com.aegis.backend.repository;
+
+import com.aegis.backend.model.AgentProfile;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+class AgentProfileRepositoryCustomImpl implements AgentProfileRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AgentProfile> loadAllById(Collection<String> usernames) {
+        // multiLoad consulta sessione e cache L2 prima del DB; gli id inesistenti tornano come null
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(AgentProfile.class)
+                .multiLoad(new ArrayList<>(usernames))
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
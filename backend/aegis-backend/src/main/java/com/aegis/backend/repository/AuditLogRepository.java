@@ -2,10 +2,10 @@ package com.aegis.backend.repository;
 
 import com.aegis.backend.model.AuditLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
 import java.util.UUID;
-import java.util.List;
 
-public interface AuditLogRepository extends JpaRepository<AuditLog, UUID> {
-    // Ci serve prendere gli ultimi X log ordinati per data decrescente
-    List<AuditLog> findTop50ByOrderByTimestampDesc();
-}
\ No newline at end of file
+public interface AuditLogRepository extends JpaRepository<AuditLog, UUID>, JpaSpecificationExecutor<AuditLog> {
+    // Le ricerche passano da AuditLogSpecifications (filtri + keyset su timestamp/id)
+}
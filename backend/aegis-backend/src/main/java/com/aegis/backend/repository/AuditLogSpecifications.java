@@ -0,0 +1,52 @@
+package com.aegis.backend.repository;
+
+import com.aegis.backend.dto.AuditCursor;
+import com.aegis.backend.dto.AuditFilter;
+import com.aegis.backend.model.AuditLog;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public final class AuditLogSpecifications {
+
+    private AuditLogSpecifications() {
+    }
+
+    /**
+     * Filtri della Black Box + condizione keyset per l'ordinamento (timestamp DESC, id DESC):
+     * timestamp &lt; cursore.timestamp OPPURE (timestamp = cursore.timestamp E id &lt; cursore.id).
+     */
+    public static Specification<AuditLog> search(AuditFilter filter, AuditCursor before) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.actor() != null) {
+                predicates.add(cb.equal(root.get("actor"), filter.actor()));
+            }
+            if (filter.action() != null) {
+                predicates.add(cb.equal(root.get("action"), filter.action()));
+            }
+            if (filter.ipAddress() != null) {
+                predicates.add(cb.equal(root.get("ipAddress"), filter.ipAddress()));
+            }
+            if (filter.from() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("timestamp"), filter.from()));
+            }
+            if (filter.to() != null) {
+                predicates.add(cb.lessThan(root.<LocalDateTime>get("timestamp"), filter.to()));
+            }
+            if (before != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.<LocalDateTime>get("timestamp"), before.timestamp()),
+                        cb.and(
+                                cb.equal(root.get("timestamp"), before.timestamp()),
+                                cb.lessThan(root.<UUID>get("id"), before.id()))
+                ));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
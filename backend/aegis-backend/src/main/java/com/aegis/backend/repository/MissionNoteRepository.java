@@ -2,10 +2,16 @@ package com.aegis.backend.repository;
 
 import com.aegis.backend.model.MissionNote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
-public interface MissionNoteRepository extends JpaRepository<MissionNote, UUID> {
+public interface MissionNoteRepository extends JpaRepository<MissionNote, UUID>, JpaSpecificationExecutor<MissionNote> {
     // Trova tutte le note di una missione ordinate per data (dal più vecchio al più recente)
     List<MissionNote> findByMissionIdOrderByTimestampAsc(UUID missionId);
-}
\ No newline at end of file
+
+    // Stessa cosa per un blocco di missioni (una sola query per l'intera lista)
+    List<MissionNote> findByMissionIdInOrderByTimestampAsc(Collection<UUID> missionIds);
+}
@@ -0,0 +1,34 @@
+package com.aegis.backend.repository;
+
+import com.aegis.backend.dto.NoteCursor;
+import com.aegis.backend.model.MissionNote;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public final class MissionNoteSpecifications {
+
+    private MissionNoteSpecifications() {
+    }
+
+    /**
+     * Note di una missione successive al cursore, per l'ordinamento (timestamp ASC, id ASC):
+     * timestamp &gt; cursore.timestamp OPPURE (timestamp = cursore.timestamp E id &gt; cursore.id).
+     */
+    public static Specification<MissionNote> feed(UUID missionId, NoteCursor after) {
+        return (root, query, cb) -> {
+            Predicate mission = cb.equal(root.get("missionId"), missionId);
+            if (after == null) {
+                return mission;
+            }
+            return cb.and(mission, cb.or(
+                    cb.greaterThan(root.<LocalDateTime>get("timestamp"), after.timestamp()),
+                    cb.and(
+                            cb.equal(root.get("timestamp"), after.timestamp()),
+                            cb.greaterThan(root.<UUID>get("id"), after.id()))
+            ));
+        };
+    }
+}
@@ -2,8 +2,32 @@ package com.aegis.backend.repository;
 
 import com.aegis.backend.model.Mission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
-public interface MissionRepository extends JpaRepository<Mission, UUID> {
-    // Qui aggiungeremo query custom se servono
-}
\ No newline at end of file
+public interface MissionRepository extends JpaRepository<Mission, UUID>, JpaSpecificationExecutor<Mission> {
+
+    // Coppie (missionId, agentId) della tabella mission_agents per un blocco di missioni
+    @Query("select m.id, a from Mission m join m.assignedAgentIds a where m.id in :ids")
+    List<Object[]> findAssignedAgentIds(@Param("ids") Collection<UUID> ids);
+
+    // ACL di una missione (owner + agenti) senza caricare l'entità: righe (ownerId, agentId), agentId null se nessuno
+    @Query("select m.ownerId, a from Mission m left join m.assignedAgentIds a where m.id = :id")
+    List<Object[]> findAclRows(@Param("id") UUID id);
+
+    @Query("select m.attachmentFilename from Mission m where m.id = :id")
+    Optional<String> findAttachmentFilenameById(@Param("id") UUID id);
+
+    // Riferimenti a un allegato content-addressed (più missioni possono condividere lo stesso blob)
+    boolean existsByAttachmentFilename(String attachmentFilename);
+
+    @Query("select distinct m.attachmentFilename from Mission m where m.attachmentFilename is not null")
+    Set<String> findReferencedAttachments();
+}
@@ -0,0 +1,73 @@
+package com.aegis.backend.repository;
+
+import com.aegis.backend.dto.MissionCursor;
+import com.aegis.backend.dto.MissionFilter;
+import com.aegis.backend.model.Mission;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public final class MissionSpecifications {
+
+    private MissionSpecifications() {
+    }
+
+    /**
+     * Filtri della lista missioni + condizione keyset per l'ordinamento (createdAt DESC, id DESC):
+     * createdAt &lt; cursore.createdAt OPPURE (createdAt = cursore.createdAt E id &lt; cursore.id).
+     * Ogni filtro è coperto da un indice composto (colonna, createdAt, id) definito su Mission.
+     */
+    public static Specification<Mission> page(MissionFilter filter, MissionCursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.status() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.status()));
+            }
+            if (filter.geographicZone() != null) {
+                predicates.add(cb.equal(root.get("geographicZone"), filter.geographicZone()));
+            }
+            if (filter.clearanceLevel() != null) {
+                predicates.add(cb.equal(root.get("clearanceLevel"), filter.clearanceLevel()));
+            }
+            if (filter.ownerId() != null) {
+                predicates.add(cb.equal(root.get("ownerId"), filter.ownerId()));
+            }
+            if (after != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.<LocalDateTime>get("createdAt"), after.createdAt()),
+                        cb.and(
+                                cb.equal(root.get("createdAt"), after.createdAt()),
+                                cb.lessThan(root.<UUID>get("id"), after.id()))
+                ));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Regola di visibilità [Mallardi Pt. 4] applicata direttamente nel database:
+     * owner = utente OPPURE utente presente in mission_agents.
+     * La sottoquery su mission_agents sfrutta l'indice su agent_id, quindi vengono lette
+     * solo le righe effettivamente visibili all'utente.
+     */
+    public static Specification<Mission> visibleTo(String viewerId) {
+        return (root, query, cb) -> {
+            Subquery<UUID> assigned = query.subquery(UUID.class);
+            Root<Mission> sub = assigned.from(Mission.class);
+            Join<Mission, String> agent = sub.join("assignedAgentIds");
+            assigned.select(sub.<UUID>get("id")).where(cb.equal(agent, viewerId));
+
+            return cb.or(
+                    cb.equal(root.get("ownerId"), viewerId),
+                    root.get("id").in(assigned)
+            );
+        };
+    }
+}
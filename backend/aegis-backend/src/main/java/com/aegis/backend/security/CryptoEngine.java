@@ -0,0 +1,300 @@
+package com.aegis.backend.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Motore di cifratura in streaming degli allegati: AES-GCM a segmenti, autenticato e accelerato in hardware.
+ * <p>
+ * Formato: header MAGIC(4) | VERSIONE(1) | DIMENSIONE SEGMENTO(4) | PREFISSO NONCE(8), poi i segmenti
+ * cifrati (testo in chiaro ≤ dimensione segmento + tag di 16 byte). Il nonce di ogni segmento è
+ * prefisso + contatore; l'AAD è l'header più il flag "ultimo segmento", quindi riordino, troncamento
+ * e modifica dei segmenti vengono rilevati in lettura.
+ * <p>
+ * I Cipher GCM sono riusati per thread (ThreadLocal): ogni segmento fa init + doFinal in un'unica
+ * chiamata, quindi più stream aperti sullo stesso thread non si disturbano.
+ * I file senza MAGIC sono nel vecchio formato AES/ECB e vengono letti con la chiave master (migrazione).
+ */
+@Component
+public class CryptoEngine {
+
+    private static final byte[] MAGIC = {'A', 'E', 'G', 'S'};
+    private static final byte VERSION = 1;
+    private static final int PREFIX_LENGTH = 8;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + Integer.BYTES + PREFIX_LENGTH;
+    private static final int TAG_LENGTH = 16;
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final long MAX_SEGMENTS = 0xFFFFFFFFL;
+
+    private static final String GCM = "AES/GCM/NoPadding";
+    private static final String LEGACY_ECB = "AES";
+
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> newInstance(GCM));
+
+    private final SecretKey masterKey;
+    private final int segmentSize;
+    private final SecureRandom random = new SecureRandom();
+
+    // --- 🔐 CHIAVE DI CIFRATURA (AES-128) ---
+    // TODO: In produzione utilizzare variabili d'ambiente (la chiave deve restare quella dei file ECB esistenti)
+    public CryptoEngine(@Value("${aegis.crypto.key:AegisIntelSecret}") String key,
+                        @Value("${aegis.crypto.segment-size:65536}") int segmentSize) {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Dimensione segmento non valida: " + segmentSize);
+        }
+        this.masterKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES");
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Canale che cifra con la chiave master tutto ciò che riceve e lo scrive su sink.
+     * close() scrive l'ultimo segmento ma non chiude sink: lo chiude chi l'ha aperto.
+     */
+    public WritableByteChannel encryptingChannel(WritableByteChannel sink) throws IOException {
+        return encryptingChannel(sink, masterKey);
+    }
+
+    public WritableByteChannel encryptingChannel(WritableByteChannel sink, SecretKey key) throws IOException {
+        return new EncryptingChannel(sink, key, newHeader());
+    }
+
+    /** Stream in chiaro di un file cifrato con la chiave master (formato GCM o legacy ECB). */
+    public InputStream decryptingStream(InputStream source) throws IOException {
+        return decryptingStream(source, masterKey, true);
+    }
+
+    /** Come sopra con una chiave esplicita; il formato legacy non è ammesso. */
+    public InputStream decryptingStream(InputStream source, SecretKey key) throws IOException {
+        return decryptingStream(source, key, false);
+    }
+
+    private InputStream decryptingStream(InputStream source, SecretKey key, boolean allowLegacy) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(source, HEADER_LENGTH);
+        byte[] header = in.readNBytes(HEADER_LENGTH);
+        if (header.length == HEADER_LENGTH && isHeader(header)) {
+            int size = ByteBuffer.wrap(header, MAGIC.length + 1, Integer.BYTES).getInt();
+            if (size <= 0 || size > MAX_SEGMENT_SIZE) {
+                throw new IOException("Header cifrato non valido");
+            }
+            return new DecryptingStream(in, key, header, size);
+        }
+
+        in.unread(header);
+        if (!allowLegacy) {
+            throw new IOException("Formato cifrato non riconosciuto");
+        }
+        // Migrazione: vecchio formato AES/ECB. CipherInputStream ha stato, quindi qui un Cipher dedicato
+        try {
+            Cipher legacy = Cipher.getInstance(LEGACY_ECB);
+            legacy.init(Cipher.DECRYPT_MODE, masterKey);
+            return new CipherInputStream(new BufferedInputStream(in, segmentSize), legacy);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Decifratura legacy non disponibile", e);
+        }
+    }
+
+    // --- FORMATO ---
+
+    private byte[] newHeader() {
+        byte[] prefix = new byte[PREFIX_LENGTH];
+        random.nextBytes(prefix);
+        return ByteBuffer.allocate(HEADER_LENGTH)
+                .put(MAGIC)
+                .put(VERSION)
+                .putInt(segmentSize)
+                .put(prefix)
+                .array();
+    }
+
+    private static boolean isHeader(byte[] header) {
+        return Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length) && header[MAGIC.length] == VERSION;
+    }
+
+    private static void initSegment(Cipher cipher, int mode, SecretKey key, byte[] header, long counter, boolean last)
+            throws GeneralSecurityException {
+        byte[] nonce = ByteBuffer.allocate(PREFIX_LENGTH + Integer.BYTES)
+                .put(header, HEADER_LENGTH - PREFIX_LENGTH, PREFIX_LENGTH)
+                .putInt((int) counter)
+                .array();
+        cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+        cipher.updateAAD(header);
+        cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+    }
+
+    private static Cipher newInstance(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(transformation + " non disponibile", e);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // --- CIFRATURA ---
+    // Il segmento pieno resta in memoria finché non arriva altro: solo alla close sappiamo qual è l'ultimo
+    private static final class EncryptingChannel implements WritableByteChannel {
+
+        private final WritableByteChannel sink;
+        private final SecretKey key;
+        private final byte[] header;
+        private final byte[] plain;
+        private final byte[] sealed;
+        private int plainLength;
+        private long counter;
+        private boolean open = true;
+
+        EncryptingChannel(WritableByteChannel sink, SecretKey key, byte[] header) throws IOException {
+            this.sink = sink;
+            this.key = key;
+            this.header = header;
+            int size = ByteBuffer.wrap(header, MAGIC.length + 1, Integer.BYTES).getInt();
+            this.plain = new byte[size];
+            this.sealed = new byte[size + TAG_LENGTH];
+            writeFully(sink, ByteBuffer.wrap(header));
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!open) throw new ClosedChannelException();
+            int written = src.remaining();
+            while (src.hasRemaining()) {
+                if (plainLength == plain.length) {
+                    seal(false);
+                }
+                int n = Math.min(plain.length - plainLength, src.remaining());
+                src.get(plain, plainLength, n);
+                plainLength += n;
+            }
+            return written;
+        }
+
+        private void seal(boolean last) throws IOException {
+            if (counter > MAX_SEGMENTS) {
+                throw new IOException("File troppo grande per il formato cifrato");
+            }
+            int length;
+            try {
+                Cipher cipher = GCM_CIPHER.get();
+                initSegment(cipher, Cipher.ENCRYPT_MODE, key, header, counter, last);
+                length = cipher.doFinal(plain, 0, plainLength, sealed, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Cifratura del segmento fallita", e);
+            }
+            counter++;
+            plainLength = 0;
+            writeFully(sink, ByteBuffer.wrap(sealed, 0, length));
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!open) return;
+            open = false;
+            seal(true);
+        }
+    }
+
+    // --- DECIFRATURA ---
+    // Si legge un byte oltre il segmento: se c'è, il segmento non è l'ultimo e il byte passa al successivo
+    private static final class DecryptingStream extends InputStream {
+
+        private final InputStream source;
+        private final SecretKey key;
+        private final byte[] header;
+        private final int sealedSize;
+        private final byte[] sealed;
+        private final byte[] plain;
+        private int carried;
+        private int plainPosition;
+        private int plainLength;
+        private long counter;
+        private boolean finished;
+
+        DecryptingStream(InputStream source, SecretKey key, byte[] header, int segmentSize) {
+            this.source = source;
+            this.key = key;
+            this.header = header;
+            this.sealedSize = segmentSize + TAG_LENGTH;
+            this.sealed = new byte[sealedSize + 1];
+            this.plain = new byte[segmentSize];
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (plainPosition == plainLength) {
+                if (finished) return -1;
+                openNextSegment();
+            }
+            int n = Math.min(len, plainLength - plainPosition);
+            System.arraycopy(plain, plainPosition, b, off, n);
+            plainPosition += n;
+            return n;
+        }
+
+        private void openNextSegment() throws IOException {
+            int available = carried + source.readNBytes(sealed, carried, sealed.length - carried);
+            boolean last = available <= sealedSize;
+            int length = last ? available : sealedSize;
+            if (length < TAG_LENGTH || counter > MAX_SEGMENTS) {
+                throw new IOException("File cifrato troncato o corrotto");
+            }
+
+            try {
+                Cipher cipher = GCM_CIPHER.get();
+                initSegment(cipher, Cipher.DECRYPT_MODE, key, header, counter, last);
+                plainLength = cipher.doFinal(sealed, 0, length, plain, 0);
+            } catch (AEADBadTagException e) {
+                throw new IOException("VIOLAZIONE INTEGRITÀ: segmento " + counter + " alterato o troncato", e);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Decifratura del segmento fallita", e);
+            }
+
+            plainPosition = 0;
+            counter++;
+            finished = last;
+            if (!last) {
+                sealed[0] = sealed[sealedSize];
+                carried = 1;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
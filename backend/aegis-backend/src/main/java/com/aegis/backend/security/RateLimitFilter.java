@@ -1,13 +1,17 @@
 package com.aegis.backend.security;
 
-import io.github.bucket4j.Bucket;
 import io.github.bucket4j.ConsumptionProbe;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -17,20 +21,30 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class RateLimitFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
     private final RateLimitingService rateLimitingService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        // 1. Identifica il client (Useremo l'IP per semplicità e protezione globale)
+        // 1. Identifica il client: IP e, se autenticato, utente (la chiave usata dipende da aegis.rate-limit.key)
         String clientIp = request.getRemoteAddr();
-
-        // 2. Prendi il secchiello di questo IP
-        Bucket tokenBucket = rateLimitingService.resolveBucket(clientIp);
-
-        // 3. Prova a consumare 1 gettone
-        ConsumptionProbe probe = tokenBucket.tryConsumeAndReturnRemaining(1);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String subject = (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken))
+                ? auth.getName() : null;
+
+        // 2-3. Consuma il costo dell'endpoint (upload/download pesano più di una GET).
+        // In modalità distributed il DB può non rispondere: meglio lasciar passare che bloccare tutto (fail-open)
+        ConsumptionProbe probe;
+        try {
+            probe = rateLimitingService.tryConsume(clientIp, subject, request.getMethod(), request.getRequestURI());
+        } catch (RuntimeException e) {
+            log.warn("Rate limit non disponibile, richiesta ammessa: {}", e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
 
         if (probe.isConsumed()) {
             // Successo: Aggiungiamo un header per informare l'utente di quanti colpi gli restano
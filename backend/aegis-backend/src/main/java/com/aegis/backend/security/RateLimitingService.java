@@ -1,30 +1,139 @@
 package com.aegis.backend.security;
 
+import com.aegis.backend.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
 import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.server.PathContainer;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.Optional;
 
+/**
+ * Rate limiting a token bucket con costo per endpoint.
+ * <p>
+ * I bucket stanno in una cache Caffeine limitata (max-buckets) con scadenza per inattività: la memoria
+ * resta piatta anche con traffico da moltissimi indirizzi. La scadenza non è mai inferiore al periodo di
+ * ricarica, quindi un bucket rimosso sarebbe comunque già tornato pieno (nessun "reset" regalato).
+ * <p>
+ * In modalità distributed (DistributedRateLimitConfig) la cache contiene i proxy dei bucket in PostgreSQL:
+ * lo stato è condiviso tra le repliche e l'ottimizzazione "delaying" consuma i gettoni in locale, sincronizzandosi
+ * col DB solo ogni max-unsynchronized-tokens gettoni o max-unsynchronized-timeout. Il limite può quindi essere
+ * superato al massimo di (repliche × max-unsynchronized-tokens) gettoni.
+ */
 @Service
 public class RateLimitingService {
 
-    // Cache in memoria: IP -> Bucket
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    private record CostRule(String method, PathPattern pattern, long cost) {}
 
-    public Bucket resolveBucket(String ip) {
-        return cache.computeIfAbsent(ip, this::newBucket);
+    private final RateLimitProperties properties;
+    private final Cache<String, Bucket> buckets;
+    private final List<CostRule> costRules;
+    private final Bandwidth limit;
+    private final BucketConfiguration configuration;
+    private final ProxyManager<String> proxyManager;
+    private final Optimization optimization;
+
+    public RateLimitingService(RateLimitProperties properties,
+                               MeterRegistry meterRegistry,
+                               Optional<ProxyManager<String>> proxyManager) {
+        this.properties = properties;
+        this.proxyManager = proxyManager.orElse(null);
+        if (properties.getMode() == RateLimitProperties.Mode.DISTRIBUTED && this.proxyManager == null) {
+            throw new IllegalStateException("ERRORE: rate limit distribuito senza ProxyManager configurato");
+        }
+
+        this.limit = Bandwidth.classic(properties.getCapacity(),
+                Refill.greedy(properties.getCapacity(), properties.getRefillPeriod()));
+        this.configuration = BucketConfiguration.builder()
+                .addLimit(limit)
+                .build();
+
+        RateLimitProperties.Distributed distributed = properties.getDistributed();
+        this.optimization = Optimizations.delaying(new DelayParameters(
+                distributed.getMaxUnsynchronizedTokens(), distributed.getMaxUnsynchronizedTimeout()));
+
+        Duration idle = properties.getIdleExpiry().compareTo(properties.getRefillPeriod()) < 0
+                ? properties.getRefillPeriod() : properties.getIdleExpiry();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(idle)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimit");
+
+        this.costRules = properties.getCosts().stream()
+                .map(c -> new CostRule(c.getMethod(), PathPatternParser.defaultInstance.parse(c.getPattern()), c.getCost()))
+                .toList();
     }
 
-    private Bucket newBucket(String ip) {
+    public Bucket resolveBucket(String key) {
+        return buckets.get(key, this::newBucket);
+    }
+
+    /**
+     * Consuma il costo dell'endpoint dai bucket del client (IP e/o utente, secondo aegis.rate-limit.key).
+     * Con due bucket, se il secondo rifiuta il primo viene rimborsato. Restituisce l'esito più restrittivo.
+     */
+    public ConsumptionProbe tryConsume(String ip, String subject, String method, String path) {
+        long cost = costOf(method, path);
+        List<String> keys = keysFor(ip, subject);
+
+        ConsumptionProbe first = resolveBucket(keys.get(0)).tryConsumeAndReturnRemaining(cost);
+        if (!first.isConsumed() || keys.size() == 1) {
+            return first;
+        }
+        ConsumptionProbe second = resolveBucket(keys.get(1)).tryConsumeAndReturnRemaining(cost);
+        if (!second.isConsumed()) {
+            resolveBucket(keys.get(0)).addTokens(cost);
+            return second;
+        }
+        return first.getRemainingTokens() <= second.getRemainingTokens() ? first : second;
+    }
+
+    public long costOf(String method, String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (CostRule rule : costRules) {
+            if ((rule.method() == null || rule.method().equalsIgnoreCase(method)) && rule.pattern().matches(container)) {
+                return rule.cost();
+            }
+        }
+        return properties.getDefaultCost();
+    }
+
+    private List<String> keysFor(String ip, String subject) {
+        String ipKey = "ip:" + ip;
+        if (subject == null) return List.of(ipKey);
+        return switch (properties.getKey()) {
+            case IP -> List.of(ipKey);
+            case SUBJECT -> List.of("sub:" + subject);
+            case IP_AND_SUBJECT -> List.of(ipKey, "sub:" + subject);
+        };
+    }
 
-        Bandwidth limit = Bandwidth.classic(5000, Refill.greedy(5000, Duration.ofMinutes(1)));
+    private Bucket newBucket(String key) {
+        if (proxyManager != null) {
+            return proxyManager.builder()
+                    .withOptimization(optimization)
+                    .build(key, () -> configuration);
+        }
 
         return Bucket.builder()
                 .addLimit(limit)
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package com.aegis.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Cache dei JWT già verificati, chiave SHA-256 del token, scadenza all'exp del token stesso.
+ * <p>
+ * Il frontend manda raffiche di chiamate con lo stesso token: solo la prima paga la verifica RSA e la
+ * conversione dei ruoli (realm_access), le altre trovano Jwt e autorità già pronti. Ogni richiesta riceve
+ * comunque un JwtAuthenticationToken nuovo, perché Spring Security lo modifica (details, authenticated).
+ * I token rifiutati non vengono messi in cache; quelli senza exp nemmeno.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    // Tetto alla durata di una voce anche per token con exp molto lontano
+    private static final Duration MAX_TTL = Duration.ofHours(24);
+
+    private static final class Entry {
+        private final Jwt jwt;
+        private volatile JwtAuthenticationToken authentication;
+
+        private Entry(Jwt jwt) {
+            this.jwt = jwt;
+        }
+    }
+
+    private final Cache<String, Entry> tokens;
+
+    public VerifiedTokenCache(MeterRegistry meterRegistry,
+                              @Value("${aegis.jwt-cache.max-size:10000}") long maxSize) {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "jwt");
+    }
+
+    /** Decoder che verifica con delegate solo i token non ancora in cache. */
+    public JwtDecoder decoder(JwtDecoder delegate) {
+        return token -> tokens.get(hash(token), k -> new Entry(delegate.decode(token))).jwt;
+    }
+
+    /** Converter che riusa autorità e nome calcolati da delegate alla prima richiesta con questo token. */
+    public Converter<Jwt, JwtAuthenticationToken> converter(Converter<Jwt, JwtAuthenticationToken> delegate) {
+        return jwt -> {
+            Entry entry = tokens.getIfPresent(hash(jwt.getTokenValue()));
+            if (entry == null || entry.jwt != jwt) {
+                return delegate.convert(jwt);
+            }
+            JwtAuthenticationToken cached = entry.authentication;
+            if (cached == null) {
+                cached = delegate.convert(jwt);
+                entry.authentication = cached;
+            }
+            return new JwtAuthenticationToken(cached.getToken(), cached.getAuthorities(), cached.getName());
+        };
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+
+    // La voce vive fino all'exp del token: oltre quella data il token va rifiutato, non servito dalla cache
+    private static final class UntilTokenExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            Instant expiresAt = entry.jwt.getExpiresAt();
+            if (expiresAt == null) return 0;
+            Duration remaining = Duration.between(Instant.now(), expiresAt);
+            if (remaining.isNegative()) return 0;
+            return remaining.compareTo(MAX_TTL) > 0 ? MAX_TTL.toNanos() : remaining.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.aegis.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versione della rubrica agenti, per l'ETag di GET /api/intel/admin/agents/directory.
+ * Cambia solo quando un profilo viene davvero scritto (updateClearance, sync del profilo dal token).
+ * <p>
+ * Il contatore è per replica: un nonce di avvio evita che due repliche (o un riavvio) producano lo stesso ETag,
+ * e la finestra max-age fa scadere comunque l'ETag, così una modifica fatta su un'altra replica
+ * viene vista al più dopo max-age.
+ */
+@Component
+public class AgentDirectoryVersion {
+
+    private final String bootNonce;
+    private final long windowMillis;
+    private final AtomicLong version = new AtomicLong();
+
+    public AgentDirectoryVersion(@Value("${aegis.agent-directory.etag-max-age:30s}") Duration maxAge) {
+        byte[] nonce = new byte[6];
+        new SecureRandom().nextBytes(nonce);
+        this.bootNonce = HexFormat.of().formatHex(nonce);
+        this.windowMillis = Math.max(1, maxAge.toMillis());
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    /** ETag per la pagina richiesta: la risposta dipende anche da chi chiede (escluso) e da cursore/dimensione. */
+    public String etag(String caller, String cursor, int size) {
+        long window = System.currentTimeMillis() / windowMillis;
+        int request = (caller + '\u001F' + cursor + '\u001F' + size).hashCode();
+        return "\"" + bootNonce + "-" + version.get() + "-" + Long.toString(window, 36)
+                + "-" + Integer.toHexString(request) + "\"";
+    }
+}
@@ -0,0 +1,123 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.repository.MissionRepository;
+import com.aegis.backend.storage.AttachmentStore;
+import com.aegis.backend.storage.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Elimina i blob allegati content-addressed (&lt;sha256&gt;.pdf) che nessuna missione referenzia più.
+ * <p>
+ * Il conteggio dei riferimenti è Mission.attachmentFilename stesso, quindi non può andare fuori sincrono.
+ * I blob modificati da meno di aegis.attachments.gc-grace vengono sempre risparmiati: coprono gli upload
+ * in corso, il cui blob è già su disco ma la missione non è ancora stata salvata.
+ * <p>
+ * Un upload duplicato può riutilizzare un blob mentre il GC lo sta valutando. Per questo il blob candidato
+ * viene prima spostato in quarantena (&lt;nome&gt;.gc), poi si ricontrolla il database: se nel frattempo una
+ * missione lo referenzia viene ripristinato, altrimenti eliminato. L'upload, dal canto suo, dopo aver salvato
+ * la missione verifica che il blob esista ancora e in caso contrario lo riscrive.
+ * Quarantene e staging rimasti da un'esecuzione interrotta vengono sistemati dopo il periodo di grazia.
+ * I file legacy SECURE_*.pdf non vengono mai toccati. Lavora solo tramite AttachmentStore.
+ */
+@Component
+public class AttachmentGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentGarbageCollector.class);
+
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}\\.pdf");
+    private static final String QUARANTINE_SUFFIX = ".gc";
+    private static final Pattern QUARANTINE_NAME = Pattern.compile("[0-9a-f]{64}\\.pdf\\.gc");
+    private static final Pattern STAGING_NAME =
+            Pattern.compile(Pattern.quote(MissionService.STAGING_PREFIX) + "[0-9a-f-]{36}");
+
+    private final MissionRepository repository;
+    private final WatermarkCache watermarkCache;
+    private final AttachmentStore attachmentStore;
+    private final Duration grace;
+
+    public AttachmentGarbageCollector(MissionRepository repository,
+                                      WatermarkCache watermarkCache,
+                                      AttachmentStore attachmentStore,
+                                      @Value("${aegis.attachments.gc-grace:1h}") Duration grace) {
+        this.repository = repository;
+        this.watermarkCache = watermarkCache;
+        this.attachmentStore = attachmentStore;
+        this.grace = grace;
+    }
+
+    @Scheduled(fixedDelayString = "${aegis.attachments.gc-interval-ms:3600000}",
+            initialDelayString = "${aegis.attachments.gc-interval-ms:3600000}")
+    public void collect() {
+        Set<String> referenced = repository.findReferencedAttachments();
+        Instant cutoff = Instant.now().minus(grace);
+        int deleted = 0;
+
+        try (Stream<StoredBlob> blobs = attachmentStore.list()) {
+            Iterator<StoredBlob> it = blobs.iterator();
+            while (it.hasNext()) {
+                StoredBlob blob = it.next();
+                String name = blob.name();
+                if (blob.lastModified().isAfter(cutoff)) continue;
+
+                if (STAGING_NAME.matcher(name).matches()) {
+                    // Upload interrotto prima del rename
+                    attachmentStore.delete(name);
+                } else if (QUARANTINE_NAME.matcher(name).matches()) {
+                    // Quarantena di un'esecuzione interrotta
+                    if (settle(name.substring(0, name.length() - QUARANTINE_SUFFIX.length()))) deleted++;
+                } else if (BLOB_NAME.matcher(name).matches() && !referenced.contains(name)
+                        // Ricontrollo puntuale: un upload potrebbe averlo appena riutilizzato
+                        && !repository.existsByAttachmentFilename(name)) {
+                    if (quarantine(name) && settle(name)) deleted++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Garbage collection degli allegati interrotta", e);
+        }
+
+        if (deleted > 0) {
+            log.info("Garbage collection allegati: {} blob non referenziati eliminati", deleted);
+        }
+    }
+
+    // Da qui in poi un upload che chiede il blob non lo trova e lo riscrive; false se è già sparito
+    private boolean quarantine(String name) throws IOException {
+        try {
+            attachmentStore.rename(name, name + QUARANTINE_SUFFIX);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    // Decisione finale sul blob in quarantena: true se eliminato, false se ripristinato
+    private boolean settle(String name) throws IOException {
+        String quarantined = name + QUARANTINE_SUFFIX;
+        if (repository.existsByAttachmentFilename(name)) {
+            // Riferito nel frattempo: torna al suo nome (sostituisce un'eventuale riscrittura, stesso contenuto)
+            try {
+                attachmentStore.rename(quarantined, name);
+            } catch (NoSuchFileException e) {
+                // Già sistemato altrove: l'upload che lo referenzia lo ha riscritto
+            }
+            return false;
+        }
+        attachmentStore.delete(quarantined);
+        watermarkCache.invalidate(name);
+        return true;
+    }
+}
@@ -1,29 +1,54 @@
 package com.aegis.backend.service;
 
+import com.aegis.backend.dto.AuditCursor;
+import com.aegis.backend.dto.AuditFilter;
+import com.aegis.backend.dto.AuditPageDTO;
 import com.aegis.backend.model.AuditLog;
 import com.aegis.backend.repository.AuditLogRepository;
+import com.aegis.backend.repository.AuditLogSpecifications;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class AuditService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final AuditLogRepository repository;
+    private final AuditWriter writer;
+    private final EventBroadcaster events;
 
-    // REQUIRES_NEW: Se la transazione principale fallisce (es. errore missione),
-    // il log del tentativo DEVE essere salvato comunque. Sicurezza prima di tutto.
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    // Scrittura asincrona e indipendente dalla transazione del chiamante: se la transazione
+    // principale fallisce (es. errore missione), il log del tentativo viene salvato comunque.
+    // ID e timestamp sono assegnati qui, al momento dell'evento, non al momento della scrittura.
     public void log(String actor, String action, String details, String ip) {
         AuditLog log = new AuditLog(actor, action, details, ip);
-        repository.save(log);
+        log.setId(UUID.randomUUID());
+        log.setTimestamp(LocalDateTime.now());
+        writer.enqueue(log);
+        events.publishAudit(log);
     }
 
-    public List<AuditLog> getRecentLogs() {
-        return repository.findTop50ByOrderByTimestampDesc();
+    // Ricerca paginata (keyset su timestamp/id, dal più recente al più vecchio)
+    public AuditPageDTO search(AuditFilter filter, AuditCursor cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<AuditLog> rows = repository.findBy(AuditLogSpecifications.search(filter, cursor),
+                q -> q.sortBy(Sort.by(Sort.Direction.DESC, "timestamp", "id")).limit(pageSize + 1).all());
+
+        boolean hasNext = rows.size() > pageSize;
+        List<AuditLog> page = hasNext ? rows.subList(0, pageSize) : rows;
+        AuditCursor nextCursor = null;
+        if (hasNext) {
+            AuditLog last = page.get(page.size() - 1);
+            nextCursor = new AuditCursor(last.getTimestamp(), last.getId());
+        }
+        return new AuditPageDTO(page, nextCursor);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,298 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.model.AuditLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrittore asincrono della Black Box (audit_logs).
+ * <p>
+ * Gli eventi entrano in una coda limitata e vengono scritti a blocchi (JDBC batch) da un job schedulato,
+ * fuori dal percorso di latenza della richiesta. Se la coda resta piena oltre il timeout di backpressure,
+ * o se il database non accetta gli eventi, questi finiscono in un file di spill append-only (con fsync)
+ * che viene rigiocato all'avvio successivo. Un batch rifiutato viene riprovato riga per riga, così nello
+ * spill finiscono solo le righe davvero rifiutate; al replay le righe che il database continua a rifiutare
+ * (o illeggibili) vengono spostate nel file di quarantena invece di bloccare il recupero.
+ * <p>
+ * Garanzia di durabilità: l'evento è durevole quando è scritto su audit_logs o nello spill. Gli eventi
+ * ancora in coda (al massimo queue-capacity, accumulati per flush-interval-ms) vengono scritti allo
+ * shutdown ordinato, ma vanno persi in caso di crash della JVM o kill -9.
+ */
+@Component
+public class AuditWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditWriter.class);
+
+    // ON CONFLICT: il replay dello spill è idempotente anche se interrotto a metà
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (id, timestamp, actor, action, details, ip_address) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO NOTHING";
+
+    private static final String NULL_FIELD = "-";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<AuditLog> queue;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final Path spillFile;
+    private final Path quarantineFile;
+    private final Object spillLock = new Object();
+
+    public AuditWriter(JdbcTemplate jdbcTemplate,
+                       @Value("${aegis.audit.queue-capacity:10000}") int queueCapacity,
+                       @Value("${aegis.audit.batch-size:200}") int batchSize,
+                       @Value("${aegis.audit.offer-timeout-ms:50}") long offerTimeoutMs,
+                       @Value("${aegis.audit.spill-file:audit-spill.log}") String spillFile,
+                       @Value("${aegis.audit.quarantine-file:audit-quarantine.log}") String quarantineFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.spillFile = Paths.get(spillFile).toAbsolutePath().normalize();
+        this.quarantineFile = Paths.get(quarantineFile).toAbsolutePath().normalize();
+    }
+
+    // --- 1. ACCODAMENTO (chiamato dal thread della richiesta) ---
+    public void enqueue(AuditLog entry) {
+        try {
+            // Backpressure: se la coda è piena aspettiamo al massimo offerTimeoutMs
+            if (queue.offer(entry, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Coda satura: l'evento non si perde, va direttamente su disco
+        log.warn("Coda audit piena ({} eventi): evento {} salvato nel file di spill", queue.size(), entry.getAction());
+        spill(List.of(entry));
+    }
+
+    // --- 2. SCRITTURA BATCH ---
+    @Scheduled(fixedDelayString = "${aegis.audit.flush-interval-ms:500}")
+    public void flush() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                insert(batch);
+            } catch (DataAccessException e) {
+                // Una sola riga non valida (es. details troppo lungo) non deve trascinare nello spill tutto il batch
+                List<Integer> rejected = new ArrayList<>();
+                int written = insertRowByRow(batch, rejected);
+                List<AuditLog> toSpill = new ArrayList<>();
+                rejected.forEach(i -> toSpill.add(batch.get(i)));
+                toSpill.addAll(batch.subList(written, batch.size()));
+                log.error("Scrittura batch audit fallita: {} eventi su {} salvati nel file di spill",
+                        toSpill.size(), batch.size(), e);
+                spill(toSpill);
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void insert(List<AuditLog> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+            ps.setObject(1, entry.getId());
+            ps.setObject(2, entry.getTimestamp());
+            ps.setString(3, entry.getActor());
+            ps.setString(4, entry.getAction());
+            ps.setString(5, entry.getDetails());
+            ps.setString(6, entry.getIpAddress());
+        });
+    }
+
+    // Riprova un batch rifiutato una riga alla volta. Le righe rifiutate dal database (dato non valido)
+    // finiscono in "rejected"; se invece il database non risponde ci si ferma subito.
+    // Ritorna quante righe sono state tentate: quelle dopo vanno trattate dal chiamante.
+    private int insertRowByRow(List<AuditLog> batch, List<Integer> rejected) {
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                insert(List.of(batch.get(i)));
+            } catch (DataIntegrityViolationException e) {
+                log.error("Evento audit {} rifiutato dal database: {}", batch.get(i).getId(), e.getMostSpecificCause().getMessage());
+                rejected.add(i);
+            } catch (DataAccessException e) {
+                return i;
+            }
+        }
+        return batch.size();
+    }
+
+    // --- 3. SPILL SU DISCO (append-only + fsync) ---
+    private void spill(List<AuditLog> entries) {
+        if (entries.isEmpty()) return;
+        List<String> lines = new ArrayList<>(entries.size());
+        for (AuditLog entry : entries) {
+            lines.add(encode(entry));
+        }
+        synchronized (spillLock) {
+            try {
+                append(spillFile, lines);
+            } catch (IOException e) {
+                // Ultima linea di difesa: almeno il log applicativo conserva la traccia
+                log.error("IMPOSSIBILE salvare {} eventi audit nel file di spill {}", entries.size(), spillFile, e);
+                lines.forEach(line -> log.error("AUDIT_LOST | {}", line));
+            }
+        }
+    }
+
+    private static void append(Path file, List<String> lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    // --- 4. REPLAY ALL'AVVIO ---
+    @EventListener(ApplicationReadyEvent.class)
+    public void replaySpill() {
+        List<String> lines;
+        synchronized (spillLock) {
+            if (!Files.exists(spillFile)) return;
+            try {
+                lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                log.error("Lettura del file di spill audit {} fallita", spillFile, e);
+                return;
+            }
+        }
+
+        // Le righe rifiutate in modo permanente vanno in quarantena; se il database non risponde
+        // ci si ferma e le righe non ancora tentate restano nello spill per il prossimo avvio
+        List<String> quarantined = new ArrayList<>();
+        int replayed = 0;
+        int processed = 0;
+        while (processed < lines.size()) {
+            int end = Math.min(processed + batchSize, lines.size());
+            int quarantineMark = quarantined.size();
+            List<AuditLog> entries = new ArrayList<>(end - processed);
+            List<String> source = new ArrayList<>(end - processed);
+            for (String line : lines.subList(processed, end)) {
+                if (line.isBlank()) continue;
+                try {
+                    entries.add(decode(line));
+                    source.add(line);
+                } catch (RuntimeException e) {
+                    log.error("Riga illeggibile nel file di spill audit: spostata in quarantena", e);
+                    quarantined.add(line);
+                }
+            }
+            int rejectedCount = 0;
+            if (!entries.isEmpty()) {
+                try {
+                    insert(entries);
+                } catch (DataAccessException e) {
+                    List<Integer> rejected = new ArrayList<>();
+                    if (insertRowByRow(entries, rejected) < entries.size()) {
+                        // Database non raggiungibile: l'intero blocco resta nello spill e verrà
+                        // ritentato (ON CONFLICT evita i duplicati delle righe già scritte)
+                        quarantined.subList(quarantineMark, quarantined.size()).clear();
+                        log.error("Replay del file di spill audit interrotto: verrà ritentato al prossimo avvio", e);
+                        break;
+                    }
+                    rejected.forEach(i -> quarantined.add(source.get(i)));
+                    rejectedCount = rejected.size();
+                }
+            }
+            replayed += entries.size() - rejectedCount;
+            processed = end;
+        }
+
+        if (!quarantined.isEmpty()) {
+            try {
+                append(quarantineFile, quarantined);
+                log.error("{} eventi audit rifiutati spostati nel file di quarantena {}", quarantined.size(), quarantineFile);
+            } catch (IOException e) {
+                // Senza quarantena le righe restano nello spill: nessuna perdita
+                log.error("Scrittura del file di quarantena audit {} fallita", quarantineFile, e);
+                return;
+            }
+        }
+        if (processed == 0) return;
+
+        // Rimuoviamo solo le righe rigiocate: nel frattempo potrebbero esserne state aggiunte altre
+        synchronized (spillLock) {
+            try {
+                List<String> current = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+                List<String> remaining = new ArrayList<>(current.subList(processed, current.size()));
+                if (remaining.isEmpty()) {
+                    Files.delete(spillFile);
+                } else {
+                    Path tmp = spillFile.resolveSibling(spillFile.getFileName() + ".tmp");
+                    Files.write(tmp, remaining, StandardCharsets.UTF_8);
+                    Files.move(tmp, spillFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                // Le righe restano: al prossimo replay ON CONFLICT evita i duplicati
+                log.error("Pulizia del file di spill audit {} fallita", spillFile, e);
+            }
+        }
+        log.info("Replay audit: {} eventi recuperati dal file di spill", replayed);
+    }
+
+    // Formato riga: campi separati da TAB, ciascuno in Base64 (i dettagli possono contenere qualsiasi carattere)
+    private static String encode(AuditLog entry) {
+        return String.join("\t",
+                entry.getId().toString(),
+                entry.getTimestamp().toString(),
+                encodeField(entry.getActor()),
+                encodeField(entry.getAction()),
+                encodeField(entry.getDetails()),
+                encodeField(entry.getIpAddress()));
+    }
+
+    private static AuditLog decode(String line) {
+        String[] fields = line.split("\t", -1);
+        AuditLog entry = new AuditLog(decodeField(fields[2]), decodeField(fields[3]), decodeField(fields[4]), decodeField(fields[5]));
+        entry.setId(UUID.fromString(fields[0]));
+        entry.setTimestamp(LocalDateTime.parse(fields[1]));
+        return entry;
+    }
+
+    private static String encodeField(String value) {
+        return value == null ? NULL_FIELD : Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeField(String value) {
+        return NULL_FIELD.equals(value) ? null : new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,264 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.dto.MissionEventDTO;
+import com.aegis.backend.model.AgentProfile;
+import com.aegis.backend.model.AuditLog;
+import com.aegis.backend.model.Mission;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Canale push (SSE) per le console: eventi audit, profili/clearance agenti e variazioni delle missioni.
+ * <p>
+ * Fan-out in-process: un unico thread dispatcher smista gli eventi in ordine nelle code limitate dei
+ * sottoscrittori; l'invio vero e proprio avviene su virtual thread, così un client lento non blocca gli altri.
+ * Se la coda di un client si riempie la connessione viene chiusa: il client si riconnette con Last-Event-ID
+ * e recupera gli eventi persi dal buffer circolare (replay-size). Se sono troppo vecchi riceve "resync"
+ * e ricarica lo stato via REST. Anche il replay passa dal dispatcher, così nella coda del client gli eventi
+ * rigiocati precedono sempre quelli live e l'ordine resta quello di pubblicazione.
+ * <p>
+ * Visibilità: audit e agenti solo al Super Supervisor; le missioni anche a owner e agenti assegnati.
+ */
+@Component
+public class EventBroadcaster {
+
+    public static final String AUDIT = "audit";
+    public static final String AGENT = "agent";
+    public static final String MISSION = "mission";
+    public static final String RESYNC = "resync";
+
+    private static final LiveEvent HEARTBEAT = new LiveEvent(-1, null, null, true, Set.of());
+    private static final LiveEvent RESYNC_EVENT = new LiveEvent(-2, RESYNC, "reload", false, Set.of());
+
+    // Evento interno: id progressivo, tipo, contenuto JSON e destinatari ammessi
+    private record LiveEvent(long id, String type, Object data, boolean restricted, Set<String> audience) {
+        boolean isVisibleTo(String username, boolean superSupervisor) {
+            return superSupervisor || (!restricted && audience.contains(username));
+        }
+    }
+
+    // Gli id cambiano a ogni avvio: un Last-Event-ID di un'istanza precedente porta al resync
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final LiveEvent[] ring;
+    private long sequence;
+
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sse-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public EventBroadcaster(MeterRegistry meterRegistry,
+                            @Value("${aegis.events.subscriber-buffer:256}") int bufferSize,
+                            @Value("${aegis.events.replay-size:1000}") int replaySize,
+                            @Value("${aegis.events.timeout:30m}") Duration timeout) {
+        this.bufferSize = bufferSize;
+        this.ring = new LiveEvent[replaySize];
+        this.timeoutMs = timeout.toMillis();
+        meterRegistry.gauge("aegis.events.subscribers", subscribers, Set::size);
+    }
+
+    // --- 1. PUBBLICAZIONE ---
+
+    public void publishAudit(AuditLog log) {
+        publish(AUDIT, log, true, Set.of());
+    }
+
+    public void publishAgent(AgentProfile profile) {
+        publish(AGENT, profile, true, Set.of());
+    }
+
+    public void publishMission(Mission mission, MissionEventDTO change) {
+        Set<String> audience = new HashSet<>();
+        if (mission.getOwnerId() != null) audience.add(mission.getOwnerId());
+        if (mission.getAssignedAgentIds() != null) audience.addAll(mission.getAssignedAgentIds());
+        publish(MISSION, change, false, Set.copyOf(audience));
+    }
+
+    private void publish(String type, Object data, boolean restricted, Set<String> audience) {
+        synchronized (ring) {
+            LiveEvent event = new LiveEvent(++sequence, type, data, restricted, audience);
+            ring[(int) (event.id() % ring.length)] = event;
+            // Nessuna console collegata: l'evento resta solo nel buffer di replay
+            if (!subscribers.isEmpty()) {
+                dispatcher.execute(() -> fanOut(event));
+            }
+        }
+    }
+
+    private void fanOut(LiveEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            // Gli eventi precedenti alla sottoscrizione arrivano (eventualmente) solo dal replay
+            if (event.id() <= subscriber.startAfter) continue;
+            if (event.isVisibleTo(subscriber.username, subscriber.superSupervisor)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    // --- 2. SOTTOSCRIZIONE ---
+
+    public SseEmitter subscribe(String username, boolean superSupervisor, String lastEventId) {
+        SseEmitter emitter = createEmitter();
+        synchronized (ring) {
+            Subscriber subscriber = new Subscriber(username, superSupervisor, emitter, bufferSize, sequence);
+            emitter.onCompletion(subscriber::close);
+            emitter.onTimeout(subscriber::close);
+            emitter.onError(e -> subscriber.close());
+            subscribers.add(subscriber);
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                // Accodato sotto il lock: il dispatcher lo esegue prima del fan-out di qualsiasi evento successivo
+                List<LiveEvent> missed = collectMissed(subscriber, lastEventId);
+                dispatcher.execute(() -> replay(subscriber, missed));
+            }
+        }
+        return emitter;
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    // Eventi successivi a Last-Event-ID ancora presenti nel buffer, null se serve un resync (chiamato con il lock del ring)
+    private List<LiveEvent> collectMissed(Subscriber subscriber, String lastEventId) {
+        long resumeFrom = parseSequence(lastEventId);
+        long oldest = Math.max(1, sequence - ring.length + 1);
+        if (resumeFrom < 0 || resumeFrom > sequence || resumeFrom + 1 < oldest) {
+            return null;
+        }
+        List<LiveEvent> missed = new ArrayList<>();
+        for (long id = resumeFrom + 1; id <= sequence; id++) {
+            LiveEvent event = ring[(int) (id % ring.length)];
+            if (event.isVisibleTo(subscriber.username, subscriber.superSupervisor)) missed.add(event);
+        }
+        return missed;
+    }
+
+    // Eseguito sul dispatcher: la coda del client riceve il replay prima degli eventi live
+    private void replay(Subscriber subscriber, List<LiveEvent> missed) {
+        if (missed == null || missed.size() > subscriber.queue.remainingCapacity()) {
+            subscriber.queue.clear();
+            subscriber.queue.offer(RESYNC_EVENT);
+        } else {
+            subscriber.queue.addAll(missed);
+        }
+        subscriber.schedule();
+    }
+
+    private long parseSequence(String lastEventId) {
+        int separator = lastEventId.indexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(bootId)) return -1;
+        try {
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // --- 3. HEARTBEAT ---
+    // Tiene vive le connessioni attraverso i proxy e fa emergere i client scollegati
+    @Scheduled(fixedDelayString = "${aegis.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) return;
+        dispatcher.execute(() -> subscribers.forEach(s -> s.offer(HEARTBEAT)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(s -> s.emitter.complete());
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    // --- 4. SOTTOSCRITTORE ---
+    private final class Subscriber {
+
+        private final String username;
+        private final boolean superSupervisor;
+        private final SseEmitter emitter;
+        private final BlockingQueue<LiveEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final long startAfter;
+        private volatile boolean closed;
+
+        Subscriber(String username, boolean superSupervisor, SseEmitter emitter, int capacity, long startAfter) {
+            this.username = username;
+            this.superSupervisor = superSupervisor;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.startAfter = startAfter;
+        }
+
+        void offer(LiveEvent event) {
+            if (closed) return;
+            if (!queue.offer(event)) {
+                // Client troppo lento: chiudiamo, al rientro recupera da Last-Event-ID
+                close();
+                emitter.complete();
+                return;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                LiveEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // Eventi arrivati mentre stavamo uscendo
+            if (!queue.isEmpty()) schedule();
+        }
+
+        private void send(LiveEvent event) throws IOException {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } else if (event == RESYNC_EVENT) {
+                emitter.send(SseEmitter.event().name(RESYNC).data(event.data()));
+            } else {
+                emitter.send(SseEmitter.event()
+                        .id(bootId + "-" + event.id())
+                        .name(event.type())
+                        .data(event.data(), MediaType.APPLICATION_JSON));
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+    }
+}
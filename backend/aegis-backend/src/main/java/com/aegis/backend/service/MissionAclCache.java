@@ -0,0 +1,76 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.repository.MissionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Cache missionId -> ACL (owner + agenti assegnati) per i controlli di SecurityService.
+ * Un miss costa una sola query di proiezione su missions/mission_agents, senza caricare l'entità.
+ * <p>
+ * Va invalidata a ogni modifica di owner/assegnazioni (createMission, addAgentToMission). Il TTL copre
+ * le modifiche fatte da altre repliche: le assegnazioni si aggiungono soltanto, quindi una voce vecchia
+ * può al più negare per qualche minuto un accesso appena concesso, mai concederne uno revocato.
+ */
+@Component
+public class MissionAclCache {
+
+    public record MissionAcl(String ownerId, Set<String> assignedAgentIds) {
+
+        public boolean isOwner(String userId) {
+            return userId.equals(ownerId);
+        }
+
+        public boolean isAssigned(String userId) {
+            return assignedAgentIds.contains(userId);
+        }
+    }
+
+    private final MissionRepository repository;
+    private final Cache<UUID, MissionAcl> acls;
+
+    public MissionAclCache(MissionRepository repository,
+                           MeterRegistry meterRegistry,
+                           @Value("${aegis.mission-acl.max-size:10000}") long maxSize,
+                           @Value("${aegis.mission-acl.ttl:5m}") Duration ttl) {
+        this.repository = repository;
+        this.acls = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, acls, "missionAcl");
+    }
+
+    /** ACL della missione, o null se la missione non esiste (i miss non vengono messi in cache). */
+    public MissionAcl get(UUID missionId) {
+        return acls.get(missionId, this::load);
+    }
+
+    public void invalidate(UUID missionId) {
+        acls.invalidate(missionId);
+    }
+
+    // Righe (ownerId, agentId) con left join: una riga con agentId null se non ci sono assegnazioni
+    private MissionAcl load(UUID missionId) {
+        List<Object[]> rows = repository.findAclRows(missionId);
+        if (rows.isEmpty()) return null;
+
+        String ownerId = (String) rows.get(0)[0];
+        Set<String> agents = new HashSet<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) agents.add((String) row[1]);
+        }
+        return new MissionAcl(ownerId, Set.copyOf(agents));
+    }
+}
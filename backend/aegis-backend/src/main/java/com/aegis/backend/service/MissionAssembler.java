@@ -0,0 +1,134 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.dto.AgentDisplayDTO;
+import com.aegis.backend.dto.MissionDTO;
+import com.aegis.backend.dto.NoteDTO;
+import com.aegis.backend.model.AgentProfile;
+import com.aegis.backend.model.Mission;
+import com.aegis.backend.model.MissionNote;
+import com.aegis.backend.repository.AgentProfileRepository;
+import com.aegis.backend.repository.MissionNoteRepository;
+import com.aegis.backend.repository.MissionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Costruisce il grafo MissionDTO / AgentDisplayDTO / NoteDTO per un blocco di missioni.
+ * Tutte le dipendenze (agenti assegnati, note, profili) vengono risolte con un numero
+ * costante di query "IN", indipendente dal numero di missioni (niente N+1).
+ * I profili passano dalla cache L2: in DB vanno solo quelli non ancora in cache.
+ */
+@Component
+@RequiredArgsConstructor
+public class MissionAssembler {
+
+    private final MissionRepository missionRepository;
+    private final AgentProfileRepository agentRepository;
+    private final MissionNoteRepository noteRepository;
+
+    public MissionDTO toDTO(Mission mission, boolean requesterIsSupervisor) {
+        return toDTOs(List.of(mission), requesterIsSupervisor).get(0);
+    }
+
+    public List<MissionDTO> toDTOs(List<Mission> missions, boolean requesterIsSupervisor) {
+        if (missions.isEmpty()) return List.of();
+
+        List<UUID> missionIds = missions.stream().map(Mission::getId).collect(Collectors.toList());
+
+        // A. Assegnazioni (tabella mission_agents) in un'unica query
+        Map<UUID, Set<String>> assignments = new HashMap<>();
+        for (Object[] row : missionRepository.findAssignedAgentIds(missionIds)) {
+            assignments.computeIfAbsent((UUID) row[0], k -> new HashSet<>()).add((String) row[1]);
+        }
+
+        // B. Note di tutte le missioni, già ordinate per data
+        Map<UUID, List<MissionNote>> notesByMission = noteRepository.findByMissionIdInOrderByTimestampAsc(missionIds)
+                .stream()
+                .collect(Collectors.groupingBy(MissionNote::getMissionId));
+
+        // C. Profili di agenti assegnati e autori delle note
+        Set<String> usernames = new HashSet<>();
+        assignments.values().forEach(usernames::addAll);
+        notesByMission.values().forEach(notes -> notes.forEach(n -> {
+            if (n.getAuthorId() != null) usernames.add(n.getAuthorId());
+        }));
+        Map<String, AgentProfile> profiles = usernames.isEmpty() ? Map.of() :
+                agentRepository.loadAllById(usernames).stream()
+                        .collect(Collectors.toMap(AgentProfile::getUsername, Function.identity()));
+
+        // D. Assemblaggio in memoria
+        List<MissionDTO> result = new ArrayList<>(missions.size());
+        for (Mission m : missions) {
+            Set<String> agentIds = assignments.getOrDefault(m.getId(), new HashSet<>());
+            List<NoteDTO> notes = notesByMission.getOrDefault(m.getId(), List.of()).stream()
+                    .map(n -> toNoteDTO(n, profiles))
+                    .collect(Collectors.toList());
+            result.add(new MissionDTO(
+                    m.getId(), m.getDescription(), m.getGeographicZone(),
+                    m.getClearanceLevel(), m.getStatus(), m.getAttachmentFilename(),
+                    agentIds,
+                    toAgentDisplay(agentIds, profiles, requesterIsSupervisor),
+                    notes
+            ));
+        }
+        return result;
+    }
+
+    private List<AgentDisplayDTO> toAgentDisplay(Set<String> agentIds, Map<String, AgentProfile> profiles,
+                                                 boolean requesterIsSupervisor) {
+        List<AgentDisplayDTO> privacySafeAgents = new ArrayList<>();
+        for (String username : agentIds) {
+            AgentProfile profile = profiles.get(username);
+            String safeName = (profile != null) ? profile.getCodeName() : "Sconosciuto (" + username + ")";
+            String email = (profile != null) ? profile.getEmail() : "N/D";
+            String fullName = null;
+            String phone = null;
+            String office = null;
+            String department = null;
+
+            if (requesterIsSupervisor && profile != null) {
+                fullName = profile.getFullName();
+                phone = profile.getPhone();
+                office = profile.getOffice();
+                department = profile.getDepartment();
+            }
+            privacySafeAgents.add(new AgentDisplayDTO(safeName, "OPERATIVO", email, fullName, phone, office, department));
+        }
+        return privacySafeAgents;
+    }
+
+    /** Note già caricate (es. una pagina del feed): autori risolti con un'unica query. */
+    public List<NoteDTO> toNoteDTOs(List<MissionNote> notes) {
+        if (notes.isEmpty()) return List.of();
+
+        Set<String> authors = new HashSet<>();
+        notes.forEach(n -> {
+            if (n.getAuthorId() != null) authors.add(n.getAuthorId());
+        });
+        Map<String, AgentProfile> profiles = authors.isEmpty() ? Map.of() :
+                agentRepository.loadAllById(authors).stream()
+                        .collect(Collectors.toMap(AgentProfile::getUsername, Function.identity()));
+
+        List<NoteDTO> result = new ArrayList<>(notes.size());
+        for (MissionNote n : notes) {
+            result.add(toNoteDTO(n, profiles));
+        }
+        return result;
+    }
+
+    private NoteDTO toNoteDTO(MissionNote n, Map<String, AgentProfile> profiles) {
+        AgentProfile author = n.getAuthorId() != null ? profiles.get(n.getAuthorId()) : null;
+        String authorCodeName = author != null ? author.getCodeName() : "Agente";
+        return new NoteDTO(n.getId().toString(), n.getContent(), authorCodeName, n.getTimestamp());
+    }
+}
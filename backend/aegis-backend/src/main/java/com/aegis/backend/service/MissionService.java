@@ -1,140 +1,162 @@
 package com.aegis.backend.service;
 
-import com.aegis.backend.dto.AgentDisplayDTO;
+import com.aegis.backend.dto.MissionCursor;
 import com.aegis.backend.dto.MissionDTO;
+import com.aegis.backend.dto.MissionEventDTO;
+import com.aegis.backend.dto.MissionFilter;
+import com.aegis.backend.dto.MissionPageDTO;
+import com.aegis.backend.dto.NoteCursor;
 import com.aegis.backend.dto.NoteDTO;
+import com.aegis.backend.dto.NotePageDTO;
 import com.aegis.backend.model.AgentProfile;
 import com.aegis.backend.model.Mission;
 import com.aegis.backend.model.MissionNote;
 import com.aegis.backend.model.MissionStatus;
 import com.aegis.backend.repository.AgentProfileRepository;
 import com.aegis.backend.repository.MissionNoteRepository;
+import com.aegis.backend.repository.MissionNoteSpecifications;
 import com.aegis.backend.repository.MissionRepository;
+import com.aegis.backend.repository.MissionSpecifications;
+import com.aegis.backend.security.CryptoEngine;
+import com.aegis.backend.storage.AttachmentStore;
+import com.aegis.backend.validation.LinkDetector;
+import com.aegis.backend.validation.PdfContentDetector;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
-import org.apache.pdfbox.util.Matrix;
-import org.apache.tika.Tika;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 public class MissionService {
 
+    private static final Logger log = LoggerFactory.getLogger(MissionService.class);
+
     private final MissionRepository repository;
     private final AgentProfileRepository agentRepository;
     private final MissionNoteRepository noteRepository;
-    private final Path fileStorageLocation;
-
-    // --- 🔐 CHIAVE DI CIFRATURA (AES-128) ---
-    // --- 🔐 CHIAVE DI CIFRATURA (AES-128) ---
-    // TODO: In produzione utilizzare variabili d'ambiente 
-    private static final String SECRET_KEY = "AegisIntelSecret"; // 16 caratteri esatti = 128 bit
-    private static final String ALGORITHM = "AES";
-
-    private static final Pattern URL_PATTERN = Pattern.compile("(?i)\\b((?:https?://|www\\d{0,3}[.]|[a-z0-9.\\-]+[.][a-z]{2,4}/)(?:[^\\s()<>]+|\\(([^\\s()<>]+|(\\([^\\s()<>]+\\)))*\\))+(?:\\(([^\\s()<>]+|(\\([^\\s()<>]+\\)))*\\)|[^\\s`!()\\[\\]{};:'\".,<>?«»“”‘’]))");
+    private final MissionAssembler assembler;
+    private final ProfileSyncCache profileSyncCache;
+    private final PdfWatermarker watermarker;
+    private final WatermarkCache watermarkCache;
+    private final PdfContentDetector pdfContentDetector;
+    private final AttachmentStore attachmentStore;
+    private final CryptoEngine cryptoEngine;
+    private final EventBroadcaster events;
+    private final MissionAclCache aclCache;
+    private final AgentDirectoryVersion directoryVersion;
+    private final long pdfMainMemoryBytes;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // Dimensione dei blocchi per cifratura/hash in streaming
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Allegati content-addressed: <sha256>.pdf
+    public static final String BLOB_EXTENSION = ".pdf";
+    // Upload in corso (hash non ancora noto): staging_<uuid>, rinominato in <sha256>.pdf a fine cifratura
+    public static final String STAGING_PREFIX = "staging_";
 
     public MissionService(MissionRepository repository,
                           AgentProfileRepository agentRepository,
-                          MissionNoteRepository noteRepository) {
+                          MissionNoteRepository noteRepository,
+                          MissionAssembler assembler,
+                          ProfileSyncCache profileSyncCache,
+                          PdfWatermarker watermarker,
+                          WatermarkCache watermarkCache,
+                          PdfContentDetector pdfContentDetector,
+                          AttachmentStore attachmentStore,
+                          CryptoEngine cryptoEngine,
+                          EventBroadcaster events,
+                          MissionAclCache aclCache,
+                          AgentDirectoryVersion directoryVersion,
+                          @Value("${aegis.download.pdf-memory-bytes:8388608}") long pdfMainMemoryBytes) {
         this.repository = repository;
         this.agentRepository = agentRepository;
         this.noteRepository = noteRepository;
-
-        this.fileStorageLocation = Paths.get("uploads").toAbsolutePath().normalize();
-
-        try {
-            Files.createDirectories(this.fileStorageLocation);
-        } catch (Exception ex) {
-            throw new RuntimeException("Impossibile creare la cartella uploads.", ex);
-        }
+        this.assembler = assembler;
+        this.profileSyncCache = profileSyncCache;
+        this.watermarker = watermarker;
+        this.watermarkCache = watermarkCache;
+        this.pdfContentDetector = pdfContentDetector;
+        this.attachmentStore = attachmentStore;
+        this.cryptoEngine = cryptoEngine;
+        this.events = events;
+        this.aclCache = aclCache;
+        this.directoryVersion = directoryVersion;
+        this.pdfMainMemoryBytes = pdfMainMemoryBytes;
     }
 
-    // --- 🛡️ METODI DI SICUREZZA (AES & HASH) ---
-
-    private byte[] encrypt(byte[] data) {
-        try {
-            SecretKeySpec key = new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            return cipher.doFinal(data);
-        } catch (Exception e) {
-            throw new RuntimeException("Errore critico durante la cifratura del file", e);
-        }
-    }
-
-    private byte[] decrypt(byte[] data) {
-        try {
-            SecretKeySpec key = new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, key);
-            return cipher.doFinal(data);
-        } catch (Exception e) {
-            throw new RuntimeException("Errore decifratura: File corrotto o chiave errata.", e);
-        }
-    }
-
-    private String calculateHash(byte[] data) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] encodedhash = digest.digest(data);
-            StringBuilder hexString = new StringBuilder(2 * encodedhash.length);
-            for (byte b : encodedhash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
+    // --- 🛡️ METODI DI SICUREZZA (AES-GCM & HASH) ---
+
+    /**
+     * Cifra il file caricato in streaming (AES-GCM a segmenti, vedi CryptoEngine) sul canale
+     * fornito dall'AttachmentStore: l'heap usato non dipende dalla dimensione del file.
+     * Se digest non è null, lo SHA-256 del contenuto in chiaro avanza nello stesso passaggio.
+     */
+    private void encryptTo(MultipartFile file, MessageDigest digest, WritableByteChannel out) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try (InputStream in = file.getInputStream();
+             WritableByteChannel encrypted = cryptoEngine.encryptingChannel(out)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                if (digest != null) digest.update(chunk, 0, read);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                while (buffer.hasRemaining()) {
+                    encrypted.write(buffer);
+                }
             }
-            return hexString.toString();
-        } catch (Exception e) {
-            return "HASH_ERROR";
         }
     }
 
     // --- 1. SYNC PROFILO ---
-    @Transactional
+    // Niente @Transactional: se i claim sono invariati (cache hit) non apriamo nemmeno una transazione.
     public void syncAgentProfile(String username, String codeName, String matricola, Integer tokenClearance, String email,
                                  String fullName, String phone, String office, String department) {
-        AgentProfile agent = agentRepository.findById(username).orElse(new AgentProfile());
-        if (agent.getUsername() == null) agent.setUsername(username);
-
-        agent.setCodeName(codeName);
-        agent.setMatricola(matricola);
-        agent.setEmail(email);
-        agent.setFullName(fullName);
-        agent.setPhone(phone);
-        agent.setOffice(office);
-        agent.setDepartment(department);
-
-        if (tokenClearance != null) {
-            agent.setClearanceLevel(tokenClearance);
-        } else if (agent.getClearanceLevel() == null) {
-            agent.setClearanceLevel(0);
+        String fingerprint = ProfileSyncCache.fingerprint(codeName, matricola, tokenClearance, email,
+                fullName, phone, office, department);
+        if (profileSyncCache.isUnchanged(username, fingerprint)) {
+            return;
+        }
+
+        AgentProfile existing = agentRepository.findById(username).orElse(null);
+
+        Integer clearance = tokenClearance;
+        if (clearance == null) {
+            clearance = (existing != null && existing.getClearanceLevel() != null) ? existing.getClearanceLevel() : 0;
         }
 
-        agentRepository.save(agent);
-        agentRepository.flush();
+        AgentProfile agent = new AgentProfile(username, codeName, matricola, clearance, email,
+                fullName, phone, office, department);
+
+        // Scriviamo solo se qualcosa è cambiato davvero (es. primo accesso dopo un riavvio)
+        if (!agent.equals(existing)) {
+            agentRepository.save(agent);
+            directoryVersion.bump();
+            events.publishAgent(agent);
+        }
+        profileSyncCache.record(username, fingerprint);
     }
 
     public int getAgentClearance(String username) {
@@ -149,8 +171,13 @@ public class MissionService {
         mission.setClearanceLevel(input.clearanceLevel());
         mission.setStatus(MissionStatus.DRAFT);
         mission.setOwnerId(ownerId);
+        // Precisione del DB (microsecondi): il cursore costruito da questa entità deve coincidere con la riga salvata
+        mission.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
         mission.setAssignedAgentIds(input.assignedAgentIds() != null ? input.assignedAgentIds() : new HashSet<>());
-        return mapToDTO(repository.save(mission), true);
+        Mission saved = repository.save(mission);
+        aclCache.invalidate(saved.getId());
+        events.publishMission(saved, new MissionEventDTO(saved.getId(), MissionEventDTO.CREATED, saved.getStatus(), null, null));
+        return mapToDTO(saved, true);
     }
 
     // --- 3. LETTURA SINGOLA ---
@@ -160,18 +187,45 @@ public class MissionService {
                 .orElseThrow(() -> new RuntimeException("Missione non trovata"));
     }
 
-    // --- 4. LETTURA TUTTI ---
-    public List<MissionDTO> getAllMissions(boolean isSupervisor) {
-        return repository.findAll().stream()
-                .map(m -> mapToDTO(m, isSupervisor))
-                .collect(Collectors.toList());
+    // Solo il nome dell'allegato (download): vuoto se la missione non esiste o non ha allegati
+    public Optional<String> getAttachmentFilename(UUID id) {
+        return repository.findAttachmentFilenameById(id);
+    }
+
+    // --- 4. LISTA PAGINATA (KEYSET) ---
+    // viewerId: utente per cui filtrare la visibilità (owner o assegnato). null = nessun filtro (Super Supervisor)
+    // Ordine: più recenti prima (createdAt DESC, id DESC)
+    public MissionPageDTO listMissions(MissionFilter filter, MissionCursor cursor, int size, String viewerId, boolean isSupervisor) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Specification<Mission> spec = MissionSpecifications.page(filter, cursor);
+        if (viewerId != null) {
+            spec = spec.and(MissionSpecifications.visibleTo(viewerId));
+        }
+
+        // Chiediamo un elemento in più per sapere se esiste una pagina successiva
+        List<Mission> rows = repository.findBy(spec,
+                q -> q.sortBy(Sort.by(Sort.Direction.DESC, "createdAt", "id")).limit(pageSize + 1).all());
+
+        boolean hasNext = rows.size() > pageSize;
+        List<Mission> page = hasNext ? rows.subList(0, pageSize) : rows;
+        MissionCursor nextCursor = null;
+        if (hasNext) {
+            Mission last = page.get(page.size() - 1);
+            nextCursor = new MissionCursor(last.getCreatedAt(), last.getId());
+        }
+
+        // Assemblaggio batch: numero di query costante, indipendente dal numero di missioni
+        return new MissionPageDTO(assembler.toDTOs(page, isSupervisor), nextCursor);
     }
 
     // --- 5. AGGIORNAMENTO STATO ---
     public MissionDTO updateStatus(UUID id, MissionStatus newStatus) {
         Mission mission = repository.findById(id).orElseThrow(() -> new RuntimeException("Missione non trovata"));
         mission.setStatus(newStatus);
-        return mapToDTO(repository.save(mission), true);
+        Mission saved = repository.save(mission);
+        events.publishMission(saved, new MissionEventDTO(id, MissionEventDTO.STATUS, newStatus, null, null));
+        return mapToDTO(saved, true);
     }
 
     // --- 6. ASSEGNAZIONE AGENTE ---
@@ -190,129 +244,154 @@ public class MissionService {
         if (mission.getAssignedAgentIds() == null) mission.setAssignedAgentIds(new HashSet<>());
         mission.getAssignedAgentIds().add(agentUsername);
 
-        return mapToDTO(repository.save(mission), true);
+        Mission saved = repository.save(mission);
+        aclCache.invalidate(id);
+        events.publishMission(saved, new MissionEventDTO(id, MissionEventDTO.AGENT_ASSIGNED, null, agentUsername, null));
+        return mapToDTO(saved, true);
     }
 
-    // --- 7. UPLOAD FILE SICURO (HASH + AES) ---
+    // --- 7. UPLOAD FILE SICURO (HASH + AES, ARCHIVIO CONTENT-ADDRESSED) ---
+    // Il nome del file cifrato è l'hash SHA-256 del contenuto: lo stesso PDF caricato su più missioni
+    // viene salvato una sola volta. Hash e cifratura avvengono in un solo passaggio su un blob di staging,
+    // che diventa <sha256>.pdf o viene scartato se quel contenuto c'è già. I blob non più referenziati
+    // da nessuna missione vengono eliminati da AttachmentGarbageCollector.
     public MissionDTO uploadAttachment(UUID missionId, MultipartFile file) {
         Mission mission = repository.findById(missionId)
                 .orElseThrow(() -> new RuntimeException("Missione non trovata"));
 
+        String staging = STAGING_PREFIX + UUID.randomUUID();
         try {
-            // A. Validazione Tipo (Tika)
-            Tika tika = new Tika();
-            String detectedType = tika.detect(file.getInputStream());
-            if (!"application/pdf".equals(detectedType)) {
+            // A. Validazione Tipo (firma PDF, Tika solo nei casi ambigui)
+            if (!pdfContentDetector.isPdf(file)) {
                 throw new SecurityException("VIOLAZIONE: Il file non è un PDF valido.");
             }
 
-            // B. Lettura Bytes
-            byte[] originalBytes = file.getBytes();
+            // B. 🔒 CRITTOGRAFIA (AES-GCM) + 🕵️‍♂️ INTEGRITY CHECK (SHA-256) in un solo passaggio,
+            //    direttamente sul canale dell'archivio (Salva solo i dati cifrati!)
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            attachmentStore.write(staging, channel -> encryptTo(file, digest, channel));
+            String integrityHash = HexFormat.of().formatHex(digest.digest());
+            log.info("[SECURITY AUDIT] File Upload Hash (SHA-256): {}", integrityHash);
+
+            // C. L'hash è anche la chiave del blob: se il contenuto c'è già lo staging viene scartato
+            String filename = integrityHash + BLOB_EXTENSION;
+            if (!refreshExisting(filename)) {
+                attachmentStore.rename(staging, filename);
+            }
+
+            String previousFilename = mission.getAttachmentFilename();
+            mission.setAttachmentFilename(filename);
+            Mission saved = repository.save(mission);
 
-            // C. 🕵️‍♂️ INTEGRITY CHECK (SHA-256)
-            String integrityHash = calculateHash(originalBytes);
-            System.out.println(">>> [SECURITY AUDIT] File Upload Hash (SHA-256): " + integrityHash);
+            // D. Il GC può aver eliminato il blob prima che la missione lo referenziasse: ora che il
+            //    riferimento è salvato non lo tocca più, quindi se manca lo riscriviamo
+            if (!attachmentStore.exists(filename)) {
+                log.warn("Allegato {} eliminato dal GC durante l'upload: riscrittura", filename);
+                attachmentStore.write(filename, channel -> encryptTo(file, null, channel));
+            }
+            events.publishMission(saved, new MissionEventDTO(missionId, MissionEventDTO.ATTACHMENT, null, null, null));
+            MissionDTO updated = mapToDTO(saved, true);
 
-            // D. 🔒 CRITTOGRAFIA (AES-128)
-            byte[] encryptedBytes = encrypt(originalBytes);
+            // Le copie marcate del vecchio allegato non devono più essere servite
+            if (previousFilename != null && !previousFilename.equals(filename)) {
+                watermarkCache.invalidate(previousFilename);
+            }
+            return updated;
 
-            // E. Scrittura su Disco (Salva solo i dati cifrati!)
-            String filename = "SECURE_" + missionId + "_" + System.currentTimeMillis() + ".pdf";
-            Path targetLocation = this.fileStorageLocation.resolve(filename);
-            Files.write(targetLocation, encryptedBytes); // Usa write, non copy
+        } catch (IOException | GeneralSecurityException e) {
+            throw new RuntimeException("Errore salvataggio file sicuro", e);
+        } finally {
+            deleteStaging(staging);
+        }
+    }
 
-            mission.setAttachmentFilename(filename);
-            return mapToDTO(repository.save(mission), true);
+    // Blob già presente: aggiorna la data di modifica per tenerlo fuori dal periodo di grazia del GC.
+    // false se non esiste (o se il GC lo ha appena eliminato)
+    private boolean refreshExisting(String filename) throws IOException {
+        if (!attachmentStore.exists(filename)) return false;
+        try {
+            attachmentStore.touch(filename);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
 
+    // Dopo il rename non c'è più nulla da eliminare; gli staging orfani li raccoglie comunque il GC
+    private void deleteStaging(String staging) {
+        try {
+            attachmentStore.delete(staging);
         } catch (IOException e) {
-            throw new RuntimeException("Errore salvataggio file sicuro", e);
+            log.warn("Impossibile eliminare lo staging {}", staging, e);
         }
     }
 
-    // --- 8. DOWNLOAD SICURO (DECIFRATURA + WATERMARK) ---
-    public Resource loadFileWithWatermark(String filename, String userIdentity) {
+    // --- 8. DOWNLOAD SICURO (DECIFRATURA + WATERMARK, IN STREAMING) ---
+    // Le aperture ripetute dello stesso file da parte della stessa identità vengono servite
+    // dalla cache dei PDF già marcati; solo al primo accesso si passa da decifratura + PDFBox.
+    public void writeFileWithWatermark(String filename, String userIdentity, OutputStream out) {
         try {
-            Path filePath = this.fileStorageLocation.resolve(filename).normalize();
-
-            // A. Leggi file cifrato
-            byte[] encryptedBytes = Files.readAllBytes(filePath);
-
-            // B. 🔓 DECIFRA AL VOLO (In Memoria)
-            byte[] decryptedBytes = decrypt(encryptedBytes);
-
-            // C. Applica Watermark al file in chiaro
-            try (PDDocument doc = PDDocument.load(decryptedBytes)) {
-                for (PDPage page : doc.getPages()) {
-                    PDPageContentStream cs = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, true, true);
-                    cs.setFont(PDType1Font.HELVETICA_BOLD, 40);
-                    PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
-                    graphicsState.setNonStrokingAlphaConstant(0.2f);
-                    cs.setGraphicsStateParameters(graphicsState);
-                    cs.setNonStrokingColor(200, 0, 0);
-                    float pageWidth = page.getMediaBox().getWidth();
-                    float pageHeight = page.getMediaBox().getHeight();
-                    float centerX = pageWidth / 2;
-                    float centerY = pageHeight / 2;
-                    cs.beginText();
-                    cs.setTextMatrix(Matrix.getRotateInstance(Math.toRadians(45), centerX - 150, centerY - 50));
-                    cs.showText("RISERVATO: " + userIdentity);
-                    cs.endText();
-                    cs.close();
-                }
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                doc.save(out);
-                return new ByteArrayResource(out.toByteArray());
-            }
+            watermarkCache.write(filename, userIdentity, o -> renderWatermarked(filename, userIdentity, o), out);
         } catch (IOException e) {
             throw new RuntimeException("Errore lettura/decifratura file", e);
         }
     }
 
+    // Il file viene decifrato in streaming (GCM, o ECB per gli allegati caricati prima della migrazione) e PDFBox lavora con un budget di memoria limitato:
+    // oltre pdfMainMemoryBytes usa file di scratch temporanei (eliminati alla chiusura del documento).
+    // Il PDF marcato viene scritto direttamente sullo stream di uscita: nessuna copia intera in heap.
+    private void renderWatermarked(String filename, String userIdentity, OutputStream out) throws IOException {
+        try (InputStream decrypted = cryptoEngine.decryptingStream(Channels.newInputStream(attachmentStore.openRead(filename)));
+             PDDocument doc = PDDocument.load(decrypted, MemoryUsageSetting.setupMixed(pdfMainMemoryBytes))) {
+
+            // Applica Watermark al file in chiaro (Form XObject condiviso da tutte le pagine)
+            watermarker.apply(doc, userIdentity);
+            doc.save(out);
+        }
+    }
+
     // --- 9. AGGIUNTA NOTA ---
-    public MissionDTO addNote(UUID missionId, String content, String authorId) {
-        if (URL_PATTERN.matcher(content).find()) {
+    // Restituisce solo la nota creata: il client la accoda a quelle che ha già (niente ricarica della missione)
+    public NoteDTO addNote(UUID missionId, String content, String authorId) {
+        // Scansione lineare: nessuna regex esposta a backtracking catastrofico su testo arbitrario
+        if (LinkDetector.containsLink(content)) {
             throw new SecurityException("VIOLAZIONE SICUREZZA: Non è consentito inserire link.");
         }
+        Mission mission = repository.findById(missionId)
+                .orElseThrow(() -> new RuntimeException("Missione non trovata"));
+
         MissionNote note = new MissionNote(content, authorId, missionId);
-        noteRepository.save(note);
-        return getMission(missionId, false);
+        // Stessa precisione del DB (microsecondi): il timestamp restituito vale anche come cursore del feed
+        note.setTimestamp(note.getTimestamp().truncatedTo(ChronoUnit.MICROS));
+        NoteDTO created = assembler.toNoteDTOs(List.of(noteRepository.save(note))).get(0);
+
+        events.publishMission(mission, new MissionEventDTO(missionId, MissionEventDTO.NOTE_ADDED, null, null, created));
+        return created;
     }
 
-    // --- MAPPER ---
-    private MissionDTO mapToDTO(Mission m, boolean requesterIsSupervisor) {
-        List<AgentDisplayDTO> privacySafeAgents = new ArrayList<>();
-
-        if (m.getAssignedAgentIds() != null) {
-            for (String username : m.getAssignedAgentIds()) {
-                AgentProfile profile = agentRepository.findById(username).orElse(null);
-                String safeName = (profile != null) ? profile.getCodeName() : "Sconosciuto (" + username + ")";
-                String email = (profile != null) ? profile.getEmail() : "N/D";
-                String fullName = null;
-                String phone = null;
-                String office = null;
-                String department = null;
-
-                if (requesterIsSupervisor && profile != null) {
-                    fullName = profile.getFullName();
-                    phone = profile.getPhone();
-                    office = profile.getOffice();
-                    department = profile.getDepartment();
-                }
-                privacySafeAgents.add(new AgentDisplayDTO(safeName, "OPERATIVO", email, fullName, phone, office, department));
-            }
+    // --- 10. FEED NOTE (KEYSET SU TIMESTAMP/ID) ---
+    // Note successive al cursore, dalla più vecchia alla più recente; autori risolti in batch
+    public NotePageDTO listNotes(UUID missionId, NoteCursor cursor, int size) {
+        if (!repository.existsById(missionId)) {
+            throw new RuntimeException("Missione non trovata");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<MissionNote> rows = noteRepository.findBy(MissionNoteSpecifications.feed(missionId, cursor),
+                q -> q.sortBy(Sort.by("timestamp", "id")).limit(pageSize + 1).all());
+
+        boolean hasNext = rows.size() > pageSize;
+        List<MissionNote> page = hasNext ? rows.subList(0, pageSize) : rows;
+        NoteCursor nextCursor = null;
+        if (hasNext) {
+            MissionNote last = page.get(page.size() - 1);
+            nextCursor = new NoteCursor(last.getTimestamp(), last.getId());
         }
+        return new NotePageDTO(assembler.toNoteDTOs(page), nextCursor);
+    }
 
-        List<NoteDTO> noteDTOs = noteRepository.findByMissionIdOrderByTimestampAsc(m.getId()).stream().map(n -> {
-            String author = agentRepository.findById(n.getAuthorId()).map(AgentProfile::getCodeName).orElse("Agente");
-            return new NoteDTO(n.getId().toString(), n.getContent(), author, n.getTimestamp());
-        }).collect(Collectors.toList());
-
-        return new MissionDTO(
-                m.getId(), m.getDescription(), m.getGeographicZone(),
-                m.getClearanceLevel(), m.getStatus(), m.getAttachmentFilename(),
-                m.getAssignedAgentIds(),
-                privacySafeAgents,
-                noteDTOs
-        );
+    // --- MAPPER ---
+    private MissionDTO mapToDTO(Mission m, boolean requesterIsSupervisor) {
+        return assembler.toDTO(m, requesterIsSupervisor);
     }
 }
\ No newline at end of file
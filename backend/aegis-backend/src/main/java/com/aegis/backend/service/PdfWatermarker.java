@@ -0,0 +1,73 @@
+package com.aegis.backend.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.apache.pdfbox.util.Matrix;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Applica il watermark "RISERVATO: identità" a tutte le pagine di un documento.
+ * Il watermark (testo ruotato, font, trasparenza) viene costruito una sola volta per download
+ * come Form XObject con un unico stato grafico condiviso; ogni pagina aggiunge solo
+ * un piccolo content stream che lo posiziona al centro e lo richiama.
+ */
+@Component
+public class PdfWatermarker {
+
+    private static final PDFont FONT = PDType1Font.HELVETICA_BOLD;
+    private static final float FONT_SIZE = 40;
+    private static final float OPACITY = 0.2f;
+
+    public void apply(PDDocument doc, String userIdentity) throws IOException {
+        PDFormXObject watermark = buildWatermark(doc, "RISERVATO: " + userIdentity);
+
+        for (PDPage page : doc.getPages()) {
+            PDRectangle box = page.getMediaBox();
+            float centerX = box.getWidth() / 2;
+            float centerY = box.getHeight() / 2;
+
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+                cs.saveGraphicsState();
+                cs.transform(Matrix.getTranslateInstance(centerX - 150, centerY - 50));
+                cs.drawForm(watermark);
+                cs.restoreGraphicsState();
+            }
+        }
+    }
+
+    private PDFormXObject buildWatermark(PDDocument doc, String text) throws IOException {
+        float textWidth = FONT.getStringWidth(text) / 1000 * FONT_SIZE;
+        float extent = textWidth + FONT_SIZE;
+
+        // PDAppearanceStream è un Form XObject: in PDFBox 2.0 è quello per cui PDPageContentStream
+        // offre un costruttore dedicato
+        PDAppearanceStream form = new PDAppearanceStream(doc);
+        form.setResources(new PDResources());
+        // Il testo ruota di 45° attorno all'origine del form: bbox simmetrico che lo contiene sempre
+        form.setBBox(new PDRectangle(-extent, -extent, 2 * extent, 2 * extent));
+
+        PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
+        graphicsState.setNonStrokingAlphaConstant(OPACITY);
+
+        try (PDPageContentStream cs = new PDPageContentStream(doc, form)) {
+            cs.setFont(FONT, FONT_SIZE);
+            cs.setGraphicsStateParameters(graphicsState);
+            cs.setNonStrokingColor(200, 0, 0);
+            cs.beginText();
+            cs.setTextMatrix(Matrix.getRotateInstance(Math.toRadians(45), 0, 0));
+            cs.showText(text);
+            cs.endText();
+        }
+        return form;
+    }
+}
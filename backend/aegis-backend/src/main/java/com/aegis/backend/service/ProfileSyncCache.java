@@ -0,0 +1,66 @@
+package com.aegis.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Cache username -> impronta (SHA-256) dei claim JWT già sincronizzati su agent_profiles.
+ * Se il token non è cambiato rispetto all'ultima sincronizzazione, syncAgentProfile
+ * non tocca il database. Dimensione limitata, scadenza TTL, metriche hit/miss su Micrometer.
+ */
+@Component
+public class ProfileSyncCache {
+
+    private final Cache<String, String> fingerprints;
+
+    public ProfileSyncCache(MeterRegistry meterRegistry,
+                            @Value("${aegis.profile-sync.max-size:10000}") long maxSize,
+                            @Value("${aegis.profile-sync.ttl:10m}") Duration ttl) {
+        this.fingerprints = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, fingerprints, "profileSync");
+    }
+
+    public boolean isUnchanged(String username, String fingerprint) {
+        return fingerprint.equals(fingerprints.getIfPresent(username));
+    }
+
+    public void record(String username, String fingerprint) {
+        fingerprints.put(username, fingerprint);
+    }
+
+    // Da chiamare quando il profilo viene modificato fuori dalla sincronizzazione (es. cambio clearance da Admin)
+    public void invalidate(String username) {
+        fingerprints.invalidate(username);
+    }
+
+    public static String fingerprint(Object... claims) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object claim : claims) {
+                // Separatore + marcatore di null: ("a", null) e (null, "a") devono dare impronte diverse
+                digest.update(claim == null ? (byte) 0 : (byte) 1);
+                if (claim != null) {
+                    digest.update(String.valueOf(claim).getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0x1F);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
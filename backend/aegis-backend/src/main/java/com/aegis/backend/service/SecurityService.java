@@ -1,7 +1,5 @@
 package com.aegis.backend.service;
 
-import com.aegis.backend.model.Mission;
-import com.aegis.backend.repository.MissionRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,7 +12,7 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class SecurityService {
 
-    private final MissionRepository repository;
+    private final MissionAclCache aclCache;
 
     // Logger per Audit Trail (Non-Repudiation)
     private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT_LOG");
@@ -22,23 +20,23 @@ public class SecurityService {
     /**
      * Verifica se l'utente ha il diritto di accedere a una specifica missione.
      * Regola [Mallardi Pt. 4]: "Visibile solo al creatore (Owner) e agli utenti aggiunti."
+     * L'ACL arriva da MissionAclCache: zero query se in cache, altrimenti una proiezione (niente entità).
      */
     public boolean canAccessMission(UUID missionId, Authentication authentication) {
-        Mission mission = repository.findById(missionId).orElse(null);
+        MissionAclCache.MissionAcl acl = aclCache.get(missionId);
 
         // Se la missione non esiste, lasciamo passare (ritorniamo true).
         // Sarà il Service/Controller a lanciare l'eccezione 404 Not Found.
         // Questo evita di rivelare l'esistenza di ID validi tramite errori 403.
-        if (mission == null) return true;
+        if (acl == null) return true;
 
         String currentUserId = authentication.getName(); // Questo è l'ID univoco (es. UUID Keycloak o username)
 
         // 1. Controllo Owner (Il Supervisor che l'ha creata)
-        boolean isOwner = currentUserId.equals(mission.getOwnerId());
+        boolean isOwner = acl.isOwner(currentUserId);
 
         // 2. Controllo Assegnazione (Se l'utente è nella lista dei partecipanti)
-        boolean isAssigned = mission.getAssignedAgentIds() != null &&
-                mission.getAssignedAgentIds().contains(currentUserId);
+        boolean isAssigned = acl.isAssigned(currentUserId);
 
         // --- DECISIONE & AUDIT ---
 
@@ -0,0 +1,180 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.security.CryptoEngine;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Cache LRU dei PDF già marcati, chiave (file allegato, identità del watermark).
+ * <p>
+ * Le voci stanno su disco, cifrate da CryptoEngine (AES-GCM) con una chiave effimera generata all'avvio (mai persistita):
+ * dopo un riavvio i file residui sono illeggibili e vengono eliminati. La cache è limitata in byte
+ * (aegis.watermark-cache.max-bytes), le voci in eccesso vengono rimosse in ordine LRU e i loro file cancellati.
+ * Hit rate ed eviction sono esposte su Micrometer come cache "watermark".
+ */
+@Component
+public class WatermarkCache {
+
+    private static final Logger log = LoggerFactory.getLogger(WatermarkCache.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Produce il PDF marcato scrivendolo sullo stream indicato. */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+    private record Key(String filename, String identity) {}
+
+    private record Entry(Path file, long size) {}
+
+    private final Path cacheDirectory;
+    private final CryptoEngine cryptoEngine;
+    private final SecretKey key;
+    private final AsyncCache<Key, Entry> entries;
+
+    public WatermarkCache(MeterRegistry meterRegistry,
+                          CryptoEngine cryptoEngine,
+                          @Value("${aegis.watermark-cache.max-bytes:268435456}") long maxBytes,
+                          @Value("${aegis.watermark-cache.directory:uploads/.watermark-cache}") String directory) {
+        this.cryptoEngine = cryptoEngine;
+        this.cacheDirectory = Paths.get(directory).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(cacheDirectory);
+            purgeDirectory();
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            this.key = generator.generateKey();
+        } catch (IOException | GeneralSecurityException e) {
+            throw new RuntimeException("Impossibile inizializzare la cache dei watermark.", e);
+        }
+
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key k, Entry e) -> (int) Math.min(e.size(), Integer.MAX_VALUE))
+                .removalListener((Key k, Entry e, RemovalCause cause) -> {
+                    if (e != null) deleteQuietly(e.file());
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "watermark");
+    }
+
+    /**
+     * Scrive su out il PDF marcato per (filename, identity). Se non è in cache lo genera tramite renderer:
+     * con richieste concorrenti sulla stessa chiave il rendering avviene una sola volta, sul thread della
+     * prima richiesta e fuori dal compute della mappa: le altre chiavi non ne vengono rallentate.
+     */
+    public void write(String filename, String identity, Renderer renderer, OutputStream out) throws IOException {
+        Key cacheKey = new Key(filename, identity);
+        try {
+            copyTo(lookup(cacheKey, renderer), out);
+        } catch (NoSuchFileException evicted) {
+            // Voce rimossa tra la lettura della mappa e l'apertura del file: la rigeneriamo
+            entries.synchronous().invalidate(cacheKey);
+            copyTo(lookup(cacheKey, renderer), out);
+        }
+    }
+
+    // Da chiamare quando l'allegato viene sostituito: le versioni marcate del vecchio file non servono più
+    public void invalidate(String filename) {
+        entries.asMap().keySet().removeIf(k -> k.filename().equals(filename));
+    }
+
+    @PreDestroy
+    public void clear() {
+        entries.synchronous().invalidateAll();
+        entries.synchronous().cleanUp();
+    }
+
+    private Entry lookup(Key cacheKey, Renderer renderer) throws IOException {
+        // Nel compute inseriamo solo una voce in attesa; chi la inserisce esegue il rendering e la completa,
+        // le richieste concorrenti sulla stessa chiave aspettano lo stesso risultato
+        CompletableFuture<Entry> pending = new CompletableFuture<>();
+        CompletableFuture<Entry> entry = entries.get(cacheKey, (k, executor) -> pending);
+        if (entry == pending) {
+            try {
+                pending.complete(render(renderer));
+            } catch (IOException | RuntimeException | Error e) {
+                // Una voce fallita viene tolta dalla cache: la richiesta successiva riprova
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return entry.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    private Entry render(Renderer renderer) throws IOException {
+        Path file = null;
+        try {
+            file = Files.createTempFile(cacheDirectory, "wm_", ".bin");
+            try (FileChannel raw = FileChannel.open(file, StandardOpenOption.WRITE);
+                 WritableByteChannel encrypted = cryptoEngine.encryptingChannel(raw, key);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(encrypted), BUFFER_SIZE)) {
+                renderer.render(out);
+            }
+            return new Entry(file, Files.size(file));
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    private void copyTo(Entry entry, OutputStream out) throws IOException {
+        try (InputStream decrypted = cryptoEngine.decryptingStream(Files.newInputStream(entry.file()), key)) {
+            decrypted.transferTo(out);
+        }
+    }
+
+    private void purgeDirectory() throws IOException {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(cacheDirectory)) {
+            for (Path file : stale) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Su alcuni file system un file ancora in lettura non può essere eliminato subito
+            log.warn("Impossibile eliminare il file di cache watermark {}", file, e);
+            file.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.aegis.backend.storage;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.stream.Stream;
+
+/**
+ * Archivio degli allegati cifrati. MissionService e il garbage collector dipendono solo da questa interfaccia;
+ * l'implementazione viene scelta con aegis.storage.type (filesystem | s3).
+ * <p>
+ * I nomi sono opachi per l'archivio (es. &lt;sha256&gt;.pdf) e non possono contenere separatori di percorso.
+ */
+public interface AttachmentStore {
+
+    /** Scrive il contenuto di un oggetto sul canale fornito dall'archivio. */
+    @FunctionalInterface
+    interface BlobWriter {
+        void writeTo(WritableByteChannel channel) throws IOException;
+    }
+
+    boolean exists(String name) throws IOException;
+
+    /**
+     * Crea l'oggetto con il contenuto prodotto da writer. L'oggetto diventa visibile solo a scrittura
+     * completata: in caso di errore non resta nulla di parziale.
+     */
+    void write(String name, BlobWriter writer) throws IOException;
+
+    /** Apre l'oggetto in lettura; NoSuchFileException se non esiste. */
+    ReadableByteChannel openRead(String name) throws IOException;
+
+    /**
+     * Porta la data di ultima modifica dentro il periodo di grazia del garbage collector. Se l'oggetto
+     * è già abbastanza recente l'archivio può non fare nulla; NoSuchFileException se non esiste.
+     */
+    void touch(String name) throws IOException;
+
+    /**
+     * Rinomina un oggetto, sostituendo l'eventuale oggetto con il nome di destinazione;
+     * NoSuchFileException se l'origine non esiste.
+     */
+    void rename(String from, String to) throws IOException;
+
+    void delete(String name) throws IOException;
+
+    /** Elenca gli oggetti presenti. Lo stream va chiuso dal chiamante. */
+    Stream<StoredBlob> list() throws IOException;
+}
@@ -0,0 +1,229 @@
+package com.aegis.backend.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Archivio su file system locale con layout a shard: &lt;root&gt;/ab/cd/&lt;nome&gt;, dove "abcd" sono i primi
+ * caratteri dello SHA-256 del nome. Ogni directory resta piccola anche con milioni di allegati.
+ * <p>
+ * Scritture: file temporaneo nella directory di destinazione, fsync dei dati, poi rename atomico: il nome
+ * definitivo non punta mai a un contenuto incompleto. Con sync-mode "immediate" anche la directory viene
+ * sincronizzata prima di rispondere; con "batched" gli fsync delle directory vengono accodati e fatti in blocco
+ * ogni sync-interval-ms: dopo un crash può mancare un upload recente, mai esserci un blob corrotto.
+ * <p>
+ * L'elenco considera solo le cartelle di shard (due cifre esadecimali) e i file nella radice: altre cartelle
+ * sotto la radice (es. .watermark-cache) non vengono visitate.
+ * <p>
+ * I file del vecchio layout piatto (direttamente in &lt;root&gt;) restano leggibili.
+ */
+@Component
+@ConditionalOnProperty(name = "aegis.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemAttachmentStore implements AttachmentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemAttachmentStore.class);
+
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    private static final String TEMP_PREFIX = "upload_";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Pattern SHARD_DIRECTORY = Pattern.compile("[0-9a-f]{2}");
+
+    private final Path root;
+    private final boolean batchedSync;
+    private final Set<Path> pendingDirectorySyncs = ConcurrentHashMap.newKeySet();
+
+    public FileSystemAttachmentStore(@Value("${aegis.attachments.directory:uploads}") String directory,
+                                     @Value("${aegis.storage.filesystem.sync-mode:immediate}") String syncMode) {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+        this.batchedSync = "batched".equalsIgnoreCase(syncMode);
+        try {
+            Files.createDirectories(root);
+        } catch (IOException ex) {
+            throw new RuntimeException("Impossibile creare la cartella uploads.", ex);
+        }
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return Files.exists(shardedPath(name)) || Files.exists(legacyPath(name));
+    }
+
+    @Override
+    public void write(String name, BlobWriter writer) throws IOException {
+        Path target = shardedPath(name);
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+
+        Path temp = Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer.writeTo(channel);
+                // Sempre prima del rename, anche in modalità batched: il nome (content-addressed) vale come
+                // "contenuto integro" e un upload identico successivo non lo riscriverebbe più
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } finally {
+            if (temp != null) Files.deleteIfExists(temp);
+        }
+
+        syncDirectory(directory);
+    }
+
+    @Override
+    public ReadableByteChannel openRead(String name) throws IOException {
+        return FileChannel.open(existingPath(name), StandardOpenOption.READ);
+    }
+
+    @Override
+    public void touch(String name) throws IOException {
+        Files.setLastModifiedTime(existingPath(name), FileTime.from(Instant.now()));
+    }
+
+    // Rename atomico: la destinazione passa dal vecchio al nuovo contenuto senza stati intermedi
+    @Override
+    public void rename(String from, String to) throws IOException {
+        Path source = existingPath(from);
+        Path target = shardedPath(to);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.getParent());
+        if (!source.getParent().equals(target.getParent())) syncDirectory(source.getParent());
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(shardedPath(name));
+        Files.deleteIfExists(legacyPath(name));
+    }
+
+    @Override
+    public Stream<StoredBlob> list() throws IOException {
+        Stream<Path> sharded = children(root)
+                .filter(p -> SHARD_DIRECTORY.matcher(p.getFileName().toString()).matches())
+                .flatMap(FileSystemAttachmentStore::children)
+                .filter(p -> SHARD_DIRECTORY.matcher(p.getFileName().toString()).matches())
+                .flatMap(FileSystemAttachmentStore::children);
+        return Stream.concat(children(root), sharded)
+                .filter(this::isStoredBlob)
+                .map(FileSystemAttachmentStore::toStoredBlob)
+                .filter(Objects::nonNull);
+    }
+
+    // --- SINCRONIZZAZIONE A BLOCCHI DELLE DIRECTORY (solo sync-mode: batched) ---
+    @Scheduled(fixedDelayString = "${aegis.storage.filesystem.sync-interval-ms:1000}")
+    public void flushPendingSyncs() {
+        for (Path directory : pendingDirectorySyncs) {
+            pendingDirectorySyncs.remove(directory);
+            sync(directory);
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        if (batchedSync) {
+            pendingDirectorySyncs.add(directory);
+        } else {
+            sync(directory);
+        }
+    }
+
+    private static void sync(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Alcuni sistemi (es. Windows) non permettono di aprire una directory per l'fsync
+            log.debug("fsync non disponibile per {}", path, e);
+        }
+    }
+
+    // --- LAYOUT ---
+    private Path shardedPath(String name) {
+        String shard = shardOf(validate(name));
+        return root.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(name);
+    }
+
+    private Path legacyPath(String name) {
+        return root.resolve(validate(name));
+    }
+
+    private Path existingPath(String name) {
+        Path sharded = shardedPath(name);
+        if (Files.exists(sharded)) return sharded;
+        Path legacy = legacyPath(name);
+        return Files.exists(legacy) ? legacy : sharded;
+    }
+
+    // Contenuto di una directory; una directory sparita nel frattempo (es. cancellata) è vuota
+    private static Stream<Path> children(Path directory) {
+        try {
+            return Files.list(directory);
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            return Stream.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // null se il file è stato cancellato tra l'elenco e la lettura della data
+    private static StoredBlob toStoredBlob(Path path) {
+        try {
+            return new StoredBlob(path.getFileName().toString(), Files.getLastModifiedTime(path).toInstant());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Solo i file del layout (piatto legacy o nello shard corretto): esclude temporanei e cartelle di servizio
+    private boolean isStoredBlob(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(TEMP_SUFFIX) || !VALID_NAME.matcher(name).matches() || !Files.isRegularFile(path)) return false;
+        int depth = root.relativize(path).getNameCount();
+        return depth == 1 || (depth == 3 && path.equals(shardedPath(name)));
+    }
+
+    private static String validate(String name) {
+        if (name == null || !VALID_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("ERRORE: nome allegato non valido.");
+        }
+        return name;
+    }
+
+    private static String shardOf(String name) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 2);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
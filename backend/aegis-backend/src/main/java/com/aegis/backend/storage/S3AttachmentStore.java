@@ -0,0 +1,180 @@
+package com.aegis.backend.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Archivio su API compatibile S3 (AWS S3, MinIO, ...). Per i test in locale basta puntare
+ * aegis.storage.s3.endpoint a un'istanza MinIO (servizio aegis-s3 in docker-compose, profilo "s3")
+ * con path-style abilitato.
+ * <p>
+ * La scrittura passa da un file temporaneo locale (S3 richiede la lunghezza del contenuto);
+ * il PUT è atomico, quindi l'oggetto non è mai visibile a metà.
+ */
+@Component
+@ConditionalOnProperty(name = "aegis.storage.type", havingValue = "s3")
+public class S3AttachmentStore implements AttachmentStore {
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+    private final Duration grace;
+
+    public S3AttachmentStore(@Value("${aegis.storage.s3.endpoint:}") String endpoint,
+                             @Value("${aegis.storage.s3.region:us-east-1}") String region,
+                             @Value("${aegis.storage.s3.bucket}") String bucket,
+                             @Value("${aegis.storage.s3.prefix:attachments/}") String prefix,
+                             @Value("${aegis.storage.s3.access-key:}") String accessKey,
+                             @Value("${aegis.storage.s3.secret-key:}") String secretKey,
+                             @Value("${aegis.storage.s3.path-style:true}") boolean pathStyle,
+                             @Value("${aegis.attachments.gc-grace:1h}") Duration grace) {
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .forcePathStyle(pathStyle);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.grace = grace;
+    }
+
+    @Override
+    public boolean exists(String name) throws IOException {
+        try {
+            s3.headObject(b -> b.bucket(bucket).key(key(name)));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return false;
+            throw new IOException("Errore S3 su " + name, e);
+        }
+    }
+
+    @Override
+    public void write(String name, BlobWriter writer) throws IOException {
+        Path staging = Files.createTempFile("aegis-s3-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer.writeTo(channel);
+            }
+            s3.putObject(b -> b.bucket(bucket).key(key(name)), RequestBody.fromFile(staging));
+        } catch (S3Exception e) {
+            throw new IOException("Errore S3 in scrittura di " + name, e);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    @Override
+    public ReadableByteChannel openRead(String name) throws IOException {
+        try {
+            return Channels.newChannel(s3.getObject(b -> b.bucket(bucket).key(key(name))));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(name);
+        } catch (S3Exception e) {
+            throw new IOException("Errore S3 in lettura di " + name, e);
+        }
+    }
+
+    // LastModified è l'unica data che ListObjectsV2 restituisce: tenerla aggiornata qui permette al
+    // garbage collector di decidere con il solo elenco, senza una richiesta in più per oggetto.
+    @Override
+    public void touch(String name) throws IOException {
+        try {
+            HeadObjectResponse head = s3.headObject(b -> b.bucket(bucket).key(key(name)));
+            // Ancora ben dentro il periodo di grazia: nessuna copia (al massimo una ogni grace/2 per blob)
+            if (head.lastModified().isAfter(Instant.now().minus(grace.dividedBy(2)))) return;
+
+            // S3 non ha "touch": copia server-side su sé stesso. La copia in place richiede REPLACE,
+            // quindi ripassiamo content-type e metadati letti sopra: cambia solo LastModified
+            s3.copyObject(b -> b.sourceBucket(bucket).sourceKey(key(name))
+                    .destinationBucket(bucket).destinationKey(key(name))
+                    .metadataDirective(MetadataDirective.REPLACE)
+                    .contentType(head.contentType())
+                    .metadata(head.metadata()));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(name);
+        } catch (S3Exception e) {
+            throw new IOException("Errore S3 in aggiornamento di " + name, e);
+        }
+    }
+
+    // S3 non ha rename: copia server-side e cancellazione dell'origine (il PUT della copia è atomico)
+    @Override
+    public void rename(String from, String to) throws IOException {
+        try {
+            s3.copyObject(b -> b.sourceBucket(bucket).sourceKey(key(from))
+                    .destinationBucket(bucket).destinationKey(key(to)));
+            s3.deleteObject(b -> b.bucket(bucket).key(key(from)));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(from);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) throw new NoSuchFileException(from);
+            throw new IOException("Errore S3 in rinomina di " + from, e);
+        }
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        try {
+            s3.deleteObject(b -> b.bucket(bucket).key(key(name)));
+        } catch (S3Exception e) {
+            throw new IOException("Errore S3 in cancellazione di " + name, e);
+        }
+    }
+
+    @Override
+    public Stream<StoredBlob> list() {
+        return s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix))
+                .contents()
+                .stream()
+                .map(o -> new StoredBlob(o.key().substring(prefix.length()), o.lastModified()));
+    }
+
+    @PreDestroy
+    public void close() {
+        s3.close();
+    }
+
+    private String key(String name) {
+        if (name == null || name.isEmpty() || name.contains("/")) {
+            throw new IllegalArgumentException("ERRORE: nome allegato non valido.");
+        }
+        return prefix + name;
+    }
+}
@@ -0,0 +1,8 @@
+package com.aegis.backend.storage;
+
+import java.time.Instant;
+
+public record StoredBlob(
+        String name,
+        Instant lastModified
+) {}
@@ -0,0 +1,130 @@
+package com.aegis.backend.validation;
+
+/**
+ * Rilevatore di link in una sola passata, senza regex e senza allocazioni: il costo è lineare
+ * nella lunghezza del testo qualunque sia l'input (niente backtracking catastrofico).
+ * <p>
+ * Riconosce (senza distinzione maiuscole/minuscole):
+ * <ul>
+ *   <li>schema://qualcosa (http, https, ftp, file, ...)</li>
+ *   <li>www.qualcosa, anche www1. / www22. ecc.</li>
+ *   <li>dominio.tld/ (es. example.org/percorso)</li>
+ * </ul>
+ * La modalità strict, usata da @NoLinks, segnala in più le parole http, ftp e www. ovunque compaiano.
+ */
+public final class LinkDetector {
+
+    private LinkDetector() {
+    }
+
+    /** true se il testo contiene un link (controllo delle note). */
+    public static boolean containsLink(CharSequence text) {
+        return scan(text, false);
+    }
+
+    /** Come containsLink, più i frammenti http / ftp / www. anche isolati (vincolo @NoLinks). */
+    public static boolean containsLinkStrict(CharSequence text) {
+        return scan(text, true);
+    }
+
+    private static boolean scan(CharSequence text, boolean strict) {
+        if (text == null) return false;
+        int length = text.length();
+
+        int wordStart = 0;       // inizio della parola alfanumerica corrente
+        int runStart = -1;       // inizio della sequenza corrente di caratteri da dominio [a-z0-9.-]
+        int lastDot = -1;        // ultimo '.' nella sequenza corrente
+        int tldLetters = 0;      // lettere dopo l'ultimo '.'
+        boolean tldOnlyLetters = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = lower(text.charAt(i));
+
+            if (strict && (startsWith(text, i, "http") || startsWith(text, i, "ftp") || startsWith(text, i, "www."))) {
+                return true;
+            }
+
+            // A. schema://x
+            if (c == ':' && i > 0 && isAlphanumeric(lower(text.charAt(i - 1)))
+                    && startsWith(text, i + 1, "//") && isVisible(text, i + 3)) {
+                return true;
+            }
+
+            // B. www.x / wwwN.x (la parola deve iniziare con www)
+            if (c == '.' && isWww(text, wordStart, i) && isVisible(text, i + 1)) {
+                return true;
+            }
+
+            // C. dominio.tld/
+            if (isDomainChar(c)) {
+                if (runStart < 0) runStart = i;
+                if (c == '.') {
+                    lastDot = i;
+                    tldLetters = 0;
+                    tldOnlyLetters = true;
+                } else if (isLetter(c)) {
+                    tldLetters++;
+                } else {
+                    tldOnlyLetters = false;
+                }
+            } else {
+                if (c == '/' && lastDot > runStart && tldOnlyLetters && tldLetters >= 2) {
+                    return true;
+                }
+                runStart = -1;
+                lastDot = -1;
+            }
+
+            if (!isAlphanumeric(c)) {
+                wordStart = i + 1;
+            }
+        }
+        return false;
+    }
+
+    // www seguito da 0-3 cifre, esattamente tra start ed end
+    private static boolean isWww(CharSequence text, int start, int end) {
+        int digits = end - start - 3;
+        if (digits < 0 || digits > 3 || !startsWith(text, start, "www")) return false;
+        for (int i = start + 3; i < end; i++) {
+            if (!isDigit(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // Confronto case-insensitive con un prefisso ASCII minuscolo
+    private static boolean startsWith(CharSequence text, int offset, String prefix) {
+        if (offset + prefix.length() > text.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (lower(text.charAt(offset + i)) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Un link deve proseguire con almeno un carattere non di spaziatura
+    private static boolean isVisible(CharSequence text, int index) {
+        if (index >= text.length()) return false;
+        char c = text.charAt(index);
+        return c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != '\u000B';
+    }
+
+    private static char lower(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return isLetter(c) || isDigit(c);
+    }
+
+    private static boolean isDomainChar(char c) {
+        return isAlphanumeric(c) || c == '.' || c == '-';
+    }
+}
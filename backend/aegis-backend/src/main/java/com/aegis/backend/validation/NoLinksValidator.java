@@ -5,15 +5,12 @@ import jakarta.validation.ConstraintValidatorContext;
 
 public class NoLinksValidator implements ConstraintValidator<NoLinks, String> {
 
-    // Regex per individuare http, https, www, ftp
-    private static final String URL_REGEX = ".*(?i)(http|https|ftp|www\\.).*";
-
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
         if (value == null || value.isEmpty()) {
             return true; // Lasciamo che @NotBlank gestisca i null
         }
-        // Ritorna TRUE se NON c'è match con la regex (quindi è valido)
-        return !value.matches(URL_REGEX);
+        // Ritorna TRUE se NON ci sono link né frammenti http/https/ftp/www. (quindi è valido)
+        return !LinkDetector.containsLinkStrict(value);
     }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.aegis.backend.validation;
+
+import org.apache.tika.Tika;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Verifica che un file caricato sia davvero un PDF, leggendo solo pochi byte.
+ * <p>
+ * Percorso veloce: firma "%PDF-" all'offset 0 e marcatore "%%EOF" in coda. Se la firma manca del tutto
+ * dal prefisso il file viene rifiutato subito. Serve almeno uno dei due indizi forti: firma all'offset 0
+ * oppure trailer in coda. Una firma spostata (ad es. dietro un BOM) senza trailer viene rifiutata, perché
+ * Tika accetta "%PDF-" ovunque nel primo KiB, anche in un file di testo che la cita. Nei restanti casi
+ * ambigui decide Tika sul solo prefisso, con un'unica istanza condivisa (thread-safe) creata al primo utilizzo.
+ */
+@Component
+public class PdfContentDetector {
+
+    private static final String PDF_MIME = "application/pdf";
+    private static final byte[] HEADER = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRAILER = "%%EOF".getBytes(StandardCharsets.US_ASCII);
+
+    // La specifica PDF ammette la firma nei primi 1024 byte e il trailer negli ultimi 1024
+    private static final int PREFIX_SIZE = 1024;
+    private static final int SUFFIX_SIZE = 1024;
+
+    private static final class TikaHolder {
+        private static final Tika TIKA = new Tika();
+    }
+
+    public boolean isPdf(MultipartFile file) throws IOException {
+        byte[] prefix;
+        try (InputStream in = file.getInputStream()) {
+            prefix = in.readNBytes(PREFIX_SIZE);
+        }
+
+        int headerAt = indexOf(prefix, HEADER);
+        if (headerAt < 0) {
+            return false;
+        }
+        boolean trailer = indexOf(readSuffix(file), TRAILER) >= 0;
+        if (headerAt == 0 && trailer) {
+            return true;
+        }
+        if (headerAt > 0 && !trailer) {
+            return false;
+        }
+        return PDF_MIME.equals(TikaHolder.TIKA.detect(prefix));
+    }
+
+    private static byte[] readSuffix(MultipartFile file) throws IOException {
+        long size = file.getSize();
+        try (InputStream in = file.getInputStream()) {
+            in.skipNBytes(Math.max(0, size - SUFFIX_SIZE));
+            return in.readNBytes(SUFFIX_SIZE);
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,65 @@
+package com.aegis.backend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash di integrità di un upload da 5 MB: legacyWholeArray riproduce il vecchio calculateHash(file.getBytes()),
+ * streamingChunks il percorso attuale di MissionService (SHA-256 a blocchi da 64 KiB, nessuna copia intera in heap).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private MockMultipartFile upload;
+
+    @Setup(Level.Trial)
+    public void createUpload() {
+        byte[] content = new byte[5 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        upload = new MockMultipartFile("file", "dossier.pdf", "application/pdf", content);
+    }
+
+    @Benchmark
+    public String legacyWholeArray() throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(upload.getBytes()));
+    }
+
+    @Benchmark
+    public String streamingChunks() throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try (InputStream in = upload.getInputStream()) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,67 @@
+package com.aegis.backend.benchmark;
+
+import com.aegis.backend.validation.LinkDetector;
+import com.aegis.backend.validation.NoLinksValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Controllo anti-link sul testo delle note: legacyUrlPattern è il vecchio find() di MissionService.addNote,
+ * linkDetector / noLinksValidator la scansione lineare di LinkDetector usata ora da addNote e da @NoLinks.
+ * Testo pulito, con link in fondo e un caso patologico per le regex (molti punti senza spazi).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkCheckBenchmark {
+
+    // Vecchio MissionService.URL_PATTERN, tenuto come riferimento
+    private static final Pattern URL_PATTERN = Pattern.compile("(?i)\\b((?:https?://|www\\d{0,3}[.]|[a-z0-9.\\-]+[.][a-z]{2,4}/)(?:[^\\s()<>]+|\\(([^\\s()<>]+|(\\([^\\s()<>]+\\)))*\\))+(?:\\(([^\\s()<>]+|(\\([^\\s()<>]+\\)))*\\)|[^\\s`!()\\[\\]{};:'\".,<>?«»“”‘’]))");
+
+    @Param({"clean", "trailingLink", "adversarial"})
+    public String shape;
+
+    private final NoLinksValidator validator = new NoLinksValidator();
+    private String note;
+
+    @Setup(Level.Trial)
+    public void createNote() {
+        String sentence = "Contatto confermato al punto di raccolta, nessuna anomalia rilevata. ";
+        note = switch (shape) {
+            case "clean" -> sentence.repeat(30);
+            case "trailingLink" -> sentence.repeat(30) + "Dettagli su https://example.org/report";
+            default -> "a.".repeat(1000) + "!";
+        };
+    }
+
+    @Benchmark
+    public boolean legacyUrlPattern() {
+        return URL_PATTERN.matcher(note).find();
+    }
+
+    @Benchmark
+    public boolean linkDetector() {
+        return LinkDetector.containsLink(note);
+    }
+
+    @Benchmark
+    public boolean noLinksValidator() {
+        return validator.isValid(note, null);
+    }
+}
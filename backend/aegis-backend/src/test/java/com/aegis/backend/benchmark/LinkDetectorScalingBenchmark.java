@@ -0,0 +1,53 @@
+package com.aegis.backend.benchmark;
+
+import com.aegis.backend.validation.LinkDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Linearità di LinkDetector sul caso peggiore: a ogni decuplicazione della lunghezza il tempo per
+ * operazione deve crescere di circa 10 volte (ns/carattere costante), per ogni forma di input ostile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkDetectorScalingBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int length;
+
+    @Param({"a.", "www", "http:/", "x.co"})
+    public String unit;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void createText() {
+        text = unit.repeat(length / unit.length()) + "!";
+    }
+
+    @Benchmark
+    public boolean containsLink() {
+        return LinkDetector.containsLink(text);
+    }
+
+    @Benchmark
+    public boolean containsLinkStrict() {
+        return LinkDetector.containsLinkStrict(text);
+    }
+}
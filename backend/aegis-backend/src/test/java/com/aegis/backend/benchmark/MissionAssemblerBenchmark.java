@@ -0,0 +1,105 @@
+package com.aegis.backend.benchmark;
+
+import com.aegis.backend.dto.MissionDTO;
+import com.aegis.backend.model.AgentProfile;
+import com.aegis.backend.model.Mission;
+import com.aegis.backend.model.MissionNote;
+import com.aegis.backend.model.MissionStatus;
+import com.aegis.backend.repository.AgentProfileRepository;
+import com.aegis.backend.repository.MissionNoteRepository;
+import com.aegis.backend.repository.MissionRepository;
+import com.aegis.backend.service.MissionAssembler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Costo in memoria di mapToDTO (MissionAssembler.toDTOs) su missioni sintetiche: 3 agenti e 5 note per missione.
+ * I repository sono stub che restituiscono liste già pronte, quindi si misura solo l'assemblaggio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MissionAssemblerBenchmark {
+
+    private static final int AGENTS = 100;
+
+    @Param({"50", "200"})
+    public int missionCount;
+
+    private MissionAssembler assembler;
+    private List<Mission> missions;
+
+    @Setup(Level.Trial)
+    public void createMissions() {
+        missions = new ArrayList<>();
+        List<Object[]> assignments = new ArrayList<>();
+        List<MissionNote> notes = new ArrayList<>();
+        for (int i = 0; i < missionCount; i++) {
+            Mission m = new Mission();
+            m.setId(UUID.randomUUID());
+            m.setDescription("Operazione sintetica " + i);
+            m.setGeographicZone("ZONA-" + (i % 12));
+            m.setClearanceLevel(i % 5);
+            m.setStatus(MissionStatus.ACTIVE);
+            m.setOwnerId("supervisor-" + (i % 4));
+            m.setAssignedAgentIds(new HashSet<>());
+            missions.add(m);
+            for (int a = 0; a < 3; a++) {
+                assignments.add(new Object[]{m.getId(), "agent-" + ((i + a) % AGENTS)});
+            }
+            for (int n = 0; n < 5; n++) {
+                MissionNote note = new MissionNote("Aggiornamento " + n + " sulla missione " + i,
+                        "agent-" + ((i + n) % AGENTS), m.getId());
+                note.setId(UUID.randomUUID());
+                notes.add(note);
+            }
+        }
+        List<AgentProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < AGENTS; i++) {
+            profiles.add(new AgentProfile("agent-" + i, "CODE-" + i, "M" + i, i % 5, "agent" + i + "@aegis.local",
+                    "Agente " + i, "+39 000 " + i, "Ufficio " + (i % 8), "Reparto " + (i % 3)));
+        }
+
+        MissionRepository missionRepository = mock(MissionRepository.class);
+        MissionNoteRepository noteRepository = mock(MissionNoteRepository.class);
+        AgentProfileRepository agentRepository = mock(AgentProfileRepository.class);
+        when(missionRepository.findAssignedAgentIds(anyCollection())).thenReturn(assignments);
+        when(noteRepository.findByMissionIdInOrderByTimestampAsc(anyCollection())).thenReturn(notes);
+        when(agentRepository.loadAllById(anyCollection())).thenReturn(profiles);
+
+        assembler = new MissionAssembler(missionRepository, agentRepository, noteRepository);
+    }
+
+    @Benchmark
+    public List<MissionDTO> supervisorView() {
+        return assembler.toDTOs(missions, true);
+    }
+
+    @Benchmark
+    public List<MissionDTO> agentView() {
+        return assembler.toDTOs(missions, false);
+    }
+}
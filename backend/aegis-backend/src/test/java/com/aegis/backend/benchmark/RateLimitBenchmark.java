@@ -0,0 +1,80 @@
+package com.aegis.backend.benchmark;
+
+import com.aegis.backend.config.RateLimitProperties;
+import com.aegis.backend.security.RateLimitingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * resolveBucket + consumo di un gettone sotto contesa (8 thread): sameClient fa lavorare tutti i thread
+ * sullo stesso bucket (caso peggiore: un singolo client aggressivo), manyClients distribuisce su 10.000 IP.
+ * uniqueClients usa un IP nuovo a ogni chiamata (scansione / spoofing): la cache supera max-buckets e lavora
+ * in eviction continua. withEndpointCost misura il percorso completo del filtro (chiave IP+utente e costo endpoint).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private final RateLimitingService service;
+    private final String[] ips = new String[CLIENTS];
+    private final AtomicLong sequence = new AtomicLong();
+
+    public RateLimitBenchmark() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxBuckets(CLIENTS * 5L);
+        properties.setKey(RateLimitProperties.KeyStrategy.IP_AND_SUBJECT);
+        RateLimitProperties.EndpointCost upload = new RateLimitProperties.EndpointCost();
+        upload.setMethod("POST");
+        upload.setPattern("/api/intel/missions/*/attachment");
+        upload.setCost(100);
+        properties.setCosts(List.of(upload));
+        service = new RateLimitingService(properties, new SimpleMeterRegistry(), Optional.empty());
+
+        for (int i = 0; i < CLIENTS; i++) {
+            ips[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public boolean sameClient() {
+        return service.resolveBucket("10.0.0.1").tryConsume(1);
+    }
+
+    @Benchmark
+    public boolean manyClients() {
+        return service.resolveBucket(ips[ThreadLocalRandom.current().nextInt(CLIENTS)]).tryConsume(1);
+    }
+
+    @Benchmark
+    public boolean uniqueClients() {
+        return service.resolveBucket("ip:" + sequence.incrementAndGet()).tryConsume(1);
+    }
+
+    @Benchmark
+    public boolean withEndpointCost() {
+        int client = ThreadLocalRandom.current().nextInt(CLIENTS);
+        return service.tryConsume(ips[client], "agent" + (client % 100), "GET", "/api/intel/missions").isConsumed();
+    }
+}
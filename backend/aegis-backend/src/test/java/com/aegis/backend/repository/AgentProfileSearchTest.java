@@ -0,0 +1,217 @@
+package com.aegis.backend.repository;
+
+import com.aegis.backend.config.AgentSearchIndexes;
+import com.aegis.backend.controller.AgentController;
+import com.aegis.backend.controller.MissionController;
+import com.aegis.backend.dto.AgentSearchCursor;
+import com.aegis.backend.model.AgentProfile;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ricerca agenti su un PostgreSQL reale (embedded): paginazione keyset, rank calcolato in Java
+ * coerente con il CASE della query, piano di esecuzione e latenza a 100k profili.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Dati caricati una volta e committati, come in produzione: niente rollback per test
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AgentProfileSearchTest {
+
+    private static final String CALLER = "admin.ross";
+    private static final Pattern EXECUTION_TIME = Pattern.compile("Execution Time: ([0-9.]+) ms");
+
+    private static final EmbeddedPostgres POSTGRES = start();
+    private static boolean seeded;
+
+    @Autowired
+    private AgentProfileRepository repository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AgentController controller;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        // "create" e non "create-drop": alla chiusura del contesto il database embedded è già spento
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        POSTGRES.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        controller = new AgentController(repository, null);
+        if (seeded) return;
+
+        // 100k profili che non corrispondono a "ro"/"ross" (md5 è esadecimale)
+        jdbcTemplate.update("""
+                INSERT INTO agent_profiles (username, code_name, matricola, clearance_level)
+                SELECT 'agent.' || md5(i::text), upper(substr(md5((i * 7)::text), 1, 10)), 'M' || i, i % 5
+                FROM generate_series(1, 100000) i
+                """);
+        // Per la query "ross": uguale, inizia con e contiene, sia su username sia su codeName
+        repository.saveAll(List.of(
+                agent("ross", "VIPER"),
+                agent("agent.zeta", "Ross"),
+                agent("rossana.b", "HAWK"),
+                agent("rossi.mario", "EAGLE"),
+                agent("k.verdi", "ROSSO"),
+                agent("anna.rossetti", "LYNX"),
+                agent("m.grossi", "OWL"),
+                agent("nullcode.ross", null),
+                agent("paolo.rossi", "FALCO"),
+                agent("z.neri", "BROSSA"),
+                agent("luca.bianchi", "WOLF"),
+                agent(CALLER, "ADMIN")));
+        new AgentSearchIndexes(jdbcTemplate).createIndexes();
+        jdbcTemplate.execute("VACUUM ANALYZE agent_profiles");
+        seeded = true;
+    }
+
+    @Test
+    void search_ordersByRankThenUsername_andExcludesCaller() {
+        assertThat(usernames(search("Ross", null, 100).getBody())).containsExactly(
+                "agent.zeta", "ross",
+                "k.verdi", "rossana.b", "rossi.mario",
+                "anna.rossetti", "m.grossi", "nullcode.ross", "paolo.rossi", "z.neri");
+    }
+
+    @Test
+    void search_cursorRoundTrip_visitsEveryResultOnce() {
+        List<String> single = usernames(search("ross", null, 100).getBody());
+
+        for (int size = 1; size <= 4; size++) {
+            List<String> paged = new ArrayList<>();
+            String cursor = null;
+            do {
+                ResponseEntity<List<AgentProfile>> page = search("ross", cursor, size);
+                paged.addAll(usernames(page.getBody()));
+                cursor = page.getHeaders().getFirst(MissionController.NEXT_CURSOR_HEADER);
+                // Il cursore emesso deve essere rileggibile così com'è
+                if (cursor != null) assertThat(AgentSearchCursor.parse(cursor).toString()).isEqualTo(cursor);
+            } while (cursor != null);
+
+            assertThat(paged).as("pagine da %d", size).containsExactlyElementsOf(single);
+        }
+    }
+
+    @Test
+    void rankOf_matchesSqlCase() {
+        List<Object[]> rows = jdbcTemplate.query("""
+                SELECT lower(username), lower(code_name),
+                       CASE WHEN lower(username) = ? OR lower(code_name) = ? THEN 0
+                            WHEN lower(username) LIKE ? OR lower(code_name) LIKE ? THEN 1
+                            ELSE 2 END
+                FROM agent_profiles WHERE lower(username) LIKE ? OR lower(code_name) LIKE ?
+                """, (rs, i) -> new Object[]{rs.getString(1), rs.getString(2), rs.getInt(3)},
+                "ross", "ross", "ross%", "ross%", "%ross%", "%ross%");
+
+        assertThat(rows).hasSize(11);
+        for (Object[] row : rows) {
+            assertThat(AgentSearchCursor.rankOf("ross", (String) row[0], (String) row[1]))
+                    .as("rank di %s", row[0]).isEqualTo(row[2]);
+        }
+    }
+
+    @Test
+    void search_shortQuery_isPrefixOnly() {
+        assertThat(usernames(search("ro", null, 100).getBody()))
+                .containsExactly("agent.zeta", "k.verdi", "ross", "rossana.b", "rossi.mario")
+                .doesNotContain("paolo.rossi");
+    }
+
+    @Test
+    void search_usesIndexesAndStaysUnder10ms_at100kProfiles() throws NoSuchMethodException {
+        assertThat(repository.count()).isGreaterThan(100_000);
+
+        // Piano della query vera (presa dall'annotazione del repository) per sottostringa e per prefisso
+        String sql = AgentProfileRepository.class.getMethod("search", String.class, String.class, String.class,
+                String.class, int.class, String.class, int.class).getAnnotation(Query.class).value();
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        for (String[] query : new String[][]{{"ross", "%ross%"}, {"ro", "ro%"}}) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("query", query[0]).addValue("prefix", query[0] + "%").addValue("pattern", query[1])
+                    .addValue("excluded", CALLER).addValue("afterRank", -1).addValue("afterUsername", "")
+                    .addValue("limit", 21);
+            String plan = String.join("\n", named.queryForList("EXPLAIN (ANALYZE) " + sql, params, String.class));
+
+            assertThat(plan).as("piano per '%s'", query[0]).doesNotContain("Seq Scan").contains("Index Scan");
+            Matcher time = EXECUTION_TIME.matcher(plan);
+            assertThat(time.find()).isTrue();
+            assertThat(Double.parseDouble(time.group(1))).as("piano per '%s'", query[0]).isLessThan(10.0);
+        }
+
+        // Latenza lato applicazione (Hibernate + mapping), mediana di 21 ricerche dopo il riscaldamento
+        // del JIT; l'ultima query cerca un profilo qualsiasi per un pezzo di username, come dalla console
+        String fragment = jdbcTemplate.queryForObject(
+                "SELECT substr(username, 12, 6) FROM agent_profiles WHERE matricola = 'M50000'", String.class);
+        for (String query : List.of("ross", "ro", fragment)) {
+            for (int i = 0; i < 200; i++) search(query, null, 20);
+            long[] elapsed = new long[21];
+            for (int i = 0; i < elapsed.length; i++) {
+                long start = System.nanoTime();
+                search(query, null, 20);
+                elapsed[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(elapsed);
+            assertThat(elapsed[elapsed.length / 2] / 1_000_000.0).as("mediana per '%s' (ms)", query).isLessThan(10.0);
+        }
+    }
+
+    private ResponseEntity<List<AgentProfile>> search(String query, String cursor, int size) {
+        return controller.searchAgents(query, cursor, size, caller());
+    }
+
+    private static JwtAuthenticationToken caller() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").subject(CALLER).build();
+        return new JwtAuthenticationToken(jwt);
+    }
+
+    private static AgentProfile agent(String username, String codeName) {
+        return new AgentProfile(username, codeName, null, 1, null, null, null, null, null);
+    }
+
+    private static List<String> usernames(List<AgentProfile> agents) {
+        return agents.stream().map(AgentProfile::getUsername).toList();
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new IllegalStateException("PostgreSQL embedded non avviabile", e);
+        }
+    }
+}
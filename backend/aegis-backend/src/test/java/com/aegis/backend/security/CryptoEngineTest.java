@@ -0,0 +1,137 @@
+package com.aegis.backend.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CryptoEngineTest {
+
+    private static final String KEY = "AegisIntelSecret";
+    // Segmenti piccoli: bastano pochi byte per avere più segmenti da alterare
+    private static final int SEGMENT = 16;
+    private static final int HEADER = 17;
+    private static final int SEALED_SEGMENT = SEGMENT + 16;
+
+    private final CryptoEngine engine = new CryptoEngine(KEY, SEGMENT);
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT, 1000})
+    void roundTrip(int size) throws IOException {
+        byte[] plain = payload(size);
+
+        byte[] sealed = encrypt(plain);
+
+        assertThat(sealed).hasSize(HEADER + segments(size) * 16 + size);
+        assertThat(decrypt(sealed)).isEqualTo(plain);
+    }
+
+    @Test
+    void roundTrip_withManySmallWrites() throws IOException {
+        byte[] plain = payload(5 * SEGMENT + 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = engine.encryptingChannel(Channels.newChannel(out))) {
+            for (byte b : plain) channel.write(ByteBuffer.wrap(new byte[]{b}));
+        }
+
+        assertThat(decrypt(out.toByteArray())).isEqualTo(plain);
+    }
+
+    @Test
+    void tamperedSegment_isRejected() throws IOException {
+        byte[] sealed = encrypt(payload(3 * SEGMENT));
+        sealed[HEADER + SEALED_SEGMENT + 5] ^= 0x01;
+
+        assertThatThrownBy(() -> decrypt(sealed)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void tamperedHeader_isRejected() throws IOException {
+        byte[] sealed = encrypt(payload(SEGMENT + 1));
+        sealed[HEADER - 1] ^= 0x01; // ultimo byte del prefisso nonce
+
+        assertThatThrownBy(() -> decrypt(sealed)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void truncatedFile_missingLastSegment_isRejected() throws IOException {
+        byte[] sealed = encrypt(payload(3 * SEGMENT));
+        assertThat(sealed).hasSize(HEADER + 3 * SEALED_SEGMENT);
+
+        byte[] truncated = Arrays.copyOf(sealed, HEADER + 2 * SEALED_SEGMENT);
+
+        assertThatThrownBy(() -> decrypt(truncated)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void reorderedSegments_areRejected() throws IOException {
+        byte[] sealed = encrypt(payload(3 * SEGMENT));
+        byte[] reordered = sealed.clone();
+        System.arraycopy(sealed, HEADER + SEALED_SEGMENT, reordered, HEADER, SEALED_SEGMENT);
+        System.arraycopy(sealed, HEADER, reordered, HEADER + SEALED_SEGMENT, SEALED_SEGMENT);
+
+        assertThatThrownBy(() -> decrypt(reordered)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void legacyEcbFile_isReadWithMasterKey() throws Exception {
+        byte[] plain = "%PDF-1.4 documento cifrato con il vecchio encrypt()".getBytes(StandardCharsets.UTF_8);
+        // Vecchio formato: AES/ECB/PKCS5Padding sull'intero file, senza header
+        Cipher legacy = Cipher.getInstance("AES");
+        legacy.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "AES"));
+        byte[] sealed = legacy.doFinal(plain);
+
+        assertThat(decrypt(sealed)).isEqualTo(plain);
+    }
+
+    @Test
+    void legacyEcbFile_isRefusedWithExplicitKey() throws Exception {
+        Cipher legacy = Cipher.getInstance("AES");
+        SecretKeySpec key = new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "AES");
+        legacy.init(Cipher.ENCRYPT_MODE, key);
+        byte[] sealed = legacy.doFinal(payload(100));
+
+        assertThatThrownBy(() -> engine.decryptingStream(new ByteArrayInputStream(sealed), key))
+                .isInstanceOf(IOException.class);
+    }
+
+    private byte[] encrypt(byte[] plain) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = engine.encryptingChannel(Channels.newChannel(out))) {
+            channel.write(ByteBuffer.wrap(plain));
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] sealed) throws IOException {
+        try (InputStream in = engine.decryptingStream(new ByteArrayInputStream(sealed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Un file vuoto ha comunque un segmento finale (solo tag)
+    private static int segments(int size) {
+        return Math.max(1, (size + SEGMENT - 1) / SEGMENT);
+    }
+
+    private static byte[] payload(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
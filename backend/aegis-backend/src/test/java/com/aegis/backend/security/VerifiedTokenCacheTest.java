@@ -0,0 +1,110 @@
+package com.aegis.backend.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VerifiedTokenCacheTest {
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(new SimpleMeterRegistry(), 100);
+
+    // Finto decoder: conta le verifiche; "rifiutato" fallisce come una firma non valida
+    private final Map<String, Instant> expiries = new ConcurrentHashMap<>();
+    private final AtomicInteger verifications = new AtomicInteger();
+    private final JwtDecoder decoder = cache.decoder(token -> {
+        verifications.incrementAndGet();
+        if (token.startsWith("rifiutato")) throw new BadJwtException("firma non valida");
+        return jwt(token, expiries.get(token));
+    });
+
+    private final AtomicInteger conversions = new AtomicInteger();
+    private final Converter<Jwt, JwtAuthenticationToken> converter = cache.converter(jwt -> {
+        conversions.incrementAndGet();
+        return new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("ROLE_SUPERVISOR")), jwt.getSubject());
+    });
+
+    @Test
+    void validToken_isVerifiedOnce_untilExp() throws InterruptedException {
+        expiries.put("token-a", Instant.now().plusMillis(800));
+
+        Jwt first = decoder.decode("token-a");
+        assertThat(decoder.decode("token-a")).isSameAs(first);
+        assertThat(verifications).hasValue(1);
+
+        // Oltre exp la voce non viene più servita: il token torna al decoder (che lo rifiuterebbe)
+        Thread.sleep(1200);
+        assertThat(decoder.decode("token-a")).isNotSameAs(first);
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void tokenWithoutExp_isNeverCached() {
+        decoder.decode("token-senza-exp");
+        decoder.decode("token-senza-exp");
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void rejectedToken_isNeverCached() {
+        assertThatThrownBy(() -> decoder.decode("rifiutato")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("rifiutato")).isInstanceOf(BadJwtException.class);
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void converter_returnsNewAuthenticationPerRequest_butConvertsOnce() {
+        expiries.put("token-a", Instant.now().plus(Duration.ofMinutes(5)));
+        Jwt jwt = decoder.decode("token-a");
+
+        JwtAuthenticationToken first = converter.convert(jwt);
+        JwtAuthenticationToken second = converter.convert(decoder.decode("token-a"));
+
+        // Spring Security modifica l'oggetto (details, authenticated): mai condiviso tra richieste
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getToken()).isSameAs(jwt);
+        assertThat(second.getName()).isEqualTo(first.getName());
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+        assertThat(conversions).hasValue(1);
+    }
+
+    @Test
+    void cachedJwt_isServedOnlyForTheSameToken() {
+        expiries.put("token-a", Instant.now().plus(Duration.ofMinutes(5)));
+        expiries.put("token-b", Instant.now().plus(Duration.ofMinutes(5)));
+
+        Jwt a = decoder.decode("token-a");
+        Jwt b = decoder.decode("token-b");
+        assertThat(a.getTokenValue()).isEqualTo("token-a");
+        assertThat(b.getTokenValue()).isEqualTo("token-b");
+        assertThat(converter.convert(a).getName()).isEqualTo("agent-token-a");
+        assertThat(converter.convert(b).getName()).isEqualTo("agent-token-b");
+
+        // Un Jwt non uscito dalla cache (stesso valore, altra istanza) non riceve le autorità memorizzate
+        Jwt foreign = jwt("token-a", expiries.get("token-a"));
+        assertThat(converter.convert(foreign).getToken()).isSameAs(foreign);
+        assertThat(conversions).hasValue(3);
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        Jwt.Builder builder = Jwt.withTokenValue(token).header("alg", "RS256").subject("agent-" + token);
+        if (expiresAt != null) builder.issuedAt(Instant.now().minusSeconds(1)).expiresAt(expiresAt);
+        return builder.build();
+    }
+}
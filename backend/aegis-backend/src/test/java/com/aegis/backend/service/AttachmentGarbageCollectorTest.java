@@ -0,0 +1,144 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.repository.MissionRepository;
+import com.aegis.backend.storage.AttachmentStore;
+import com.aegis.backend.storage.FileSystemAttachmentStore;
+import com.aegis.backend.storage.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AttachmentGarbageCollectorTest {
+
+    private static final String BLOB = "a".repeat(64) + ".pdf";
+    private static final String OTHER = "b".repeat(64) + ".pdf";
+
+    @Mock
+    private MissionRepository repository;
+    @Mock
+    private WatermarkCache watermarkCache;
+
+    @TempDir
+    Path root;
+
+    private AttachmentStore store;
+    private AttachmentGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        store = new FileSystemAttachmentStore(root.toString(), "immediate");
+        collector = new AttachmentGarbageCollector(repository, watermarkCache, store, Duration.ofHours(1));
+        lenient().when(repository.findReferencedAttachments()).thenReturn(Set.of());
+        lenient().when(repository.existsByAttachmentFilename(anyString())).thenReturn(false);
+    }
+
+    @Test
+    void unreferencedOldBlob_isDeleted_freshOneIsKept() throws IOException {
+        write(BLOB, "orfano");
+        ageEverything();
+        write(OTHER, "upload in corso");
+
+        collector.collect();
+
+        assertThat(store.exists(BLOB)).isFalse();
+        assertThat(store.exists(OTHER)).isTrue();
+        assertThat(names()).containsExactly(OTHER);
+        verify(watermarkCache).invalidate(BLOB);
+    }
+
+    @Test
+    void blobReferencedWhileQuarantined_isRestored() throws IOException {
+        write(BLOB, "riutilizzato");
+        ageEverything();
+        // Primo controllo: nessun riferimento; dopo la quarantena un upload duplicato ha salvato la missione
+        when(repository.existsByAttachmentFilename(BLOB)).thenReturn(false, true);
+
+        collector.collect();
+
+        assertThat(read(BLOB)).isEqualTo("riutilizzato");
+        assertThat(names()).containsExactly(BLOB);
+        verify(watermarkCache, never()).invalidate(anyString());
+    }
+
+    @Test
+    void referencedBlob_isNeverMoved() throws IOException {
+        write(BLOB, "in uso");
+        ageEverything();
+        when(repository.findReferencedAttachments()).thenReturn(Set.of(BLOB));
+
+        collector.collect();
+
+        assertThat(read(BLOB)).isEqualTo("in uso");
+        verify(repository, never()).existsByAttachmentFilename(anyString());
+    }
+
+    @Test
+    void leftoversOfInterruptedRuns_areSettled() throws IOException {
+        String staleStaging = MissionService.STAGING_PREFIX + UUID.randomUUID();
+        write(staleStaging, "upload interrotto");
+        write(BLOB + ".gc", "referenziato");
+        write(OTHER + ".gc", "orfano");
+        write("SECURE_legacy.pdf", "legacy");
+        ageEverything();
+        String liveStaging = MissionService.STAGING_PREFIX + UUID.randomUUID();
+        write(liveStaging, "upload in corso");
+        when(repository.existsByAttachmentFilename(BLOB)).thenReturn(true);
+
+        collector.collect();
+
+        assertThat(names()).containsExactlyInAnyOrder(BLOB, liveStaging, "SECURE_legacy.pdf");
+        assertThat(read(BLOB)).isEqualTo("referenziato");
+    }
+
+    private void write(String name, String content) throws IOException {
+        store.write(name, channel -> channel.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private String read(String name) throws IOException {
+        try (InputStream in = Channels.newInputStream(store.openRead(name))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private List<String> names() throws IOException {
+        try (Stream<StoredBlob> blobs = store.list()) {
+            return blobs.map(StoredBlob::name).toList();
+        }
+    }
+
+    // Tutto quello che è già su disco esce dal periodo di grazia
+    private void ageEverything() throws IOException {
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Files.setLastModifiedTime(file, old);
+            }
+        }
+    }
+}
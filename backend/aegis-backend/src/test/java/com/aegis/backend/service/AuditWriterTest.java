@@ -0,0 +1,129 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.model.AuditLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class AuditWriterTest {
+
+    private static final String TOO_LONG = "x".repeat(300);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path dir;
+
+    private final List<UUID> written = new ArrayList<>();
+    private boolean databaseDown;
+    private AuditWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        // Finto database: details oltre 255 caratteri viola il vincolo e fa fallire l'intero batch
+        lenient().when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenAnswer(invocation -> {
+            if (databaseDown) throw new CannotGetJdbcConnectionException("database non raggiungibile");
+            Collection<AuditLog> batch = invocation.getArgument(1);
+            if (batch.stream().anyMatch(e -> e.getDetails().length() > 255)) {
+                throw new DataIntegrityViolationException("value too long for type character varying(255)");
+            }
+            batch.forEach(e -> written.add(e.getId()));
+            return new int[][]{};
+        });
+        writer = new AuditWriter(jdbcTemplate, 100, 10, 0,
+                dir.resolve("spill.log").toString(), dir.resolve("quarantine.log").toString());
+    }
+
+    @Test
+    void flush_spillsOnlyRejectedRows() throws IOException {
+        List<AuditLog> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) entries.add(entry("ok-" + i));
+        AuditLog bad = entry(TOO_LONG);
+        entries.add(2, bad);
+        entries.forEach(writer::enqueue);
+
+        writer.flush();
+
+        assertThat(written).hasSize(5).doesNotContain(bad.getId());
+        assertThat(lines("spill.log")).singleElement().asString().startsWith(bad.getId().toString());
+    }
+
+    @Test
+    void flush_spillsWholeBatchWhenDatabaseIsDown() throws IOException {
+        databaseDown = true;
+        for (int i = 0; i < 3; i++) writer.enqueue(entry("ok-" + i));
+
+        writer.flush();
+
+        assertThat(lines("spill.log")).hasSize(3);
+    }
+
+    @Test
+    void replay_quarantinesRejectedAndMalformedLines() throws IOException {
+        AuditLog bad = entry(TOO_LONG);
+        databaseDown = true;
+        writer.enqueue(entry("ok-1"));
+        writer.enqueue(bad);
+        writer.enqueue(entry("ok-2"));
+        writer.flush();
+        Files.writeString(dir.resolve("spill.log"), "riga-corrotta\n", StandardOpenOption.APPEND);
+
+        databaseDown = false;
+        writer.replaySpill();
+
+        assertThat(written).hasSize(2);
+        assertThat(Files.exists(dir.resolve("spill.log"))).isFalse();
+        assertThat(lines("quarantine.log")).hasSize(2)
+                .anySatisfy(line -> assertThat(line).startsWith(bad.getId().toString()))
+                .contains("riga-corrotta");
+    }
+
+    @Test
+    void replay_keepsSpillWhenDatabaseIsDown() throws IOException {
+        databaseDown = true;
+        for (int i = 0; i < 3; i++) writer.enqueue(entry("ok-" + i));
+        writer.flush();
+
+        writer.replaySpill();
+
+        assertThat(lines("spill.log")).hasSize(3);
+        assertThat(Files.exists(dir.resolve("quarantine.log"))).isFalse();
+    }
+
+    private static AuditLog entry(String details) {
+        AuditLog entry = new AuditLog("agent", "TEST", details, "127.0.0.1");
+        entry.setId(UUID.randomUUID());
+        entry.setTimestamp(LocalDateTime.now());
+        return entry;
+    }
+
+    private List<String> lines(String file) throws IOException {
+        return Files.readAllLines(dir.resolve(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,136 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.model.AuditLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventBroadcasterTest {
+
+    private static final int EVENTS = 5_000;
+    private static final int PUBLISHERS = 4;
+    private static final int OBSERVERS = 10;
+
+    private final TestBroadcaster broadcaster = new TestBroadcaster();
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    // Riconnessione con Last-Event-ID mentre altri thread stanno pubblicando: il client deve ricevere
+    // ogni evento successivo una sola volta e in ordine, senza buchi tra replay e live
+    @RepeatedTest(5)
+    void resumeWhilePublishing_deliversEveryEventInOrder() throws Exception {
+        // Molti client collegati rallentano il fan-out: il dispatcher accumula eventi arretrati
+        RecordingEmitter observer = broadcaster.connect(null);
+        for (int i = 1; i < OBSERVERS; i++) broadcaster.connect(null);
+        CountDownLatch halfway = new CountDownLatch(1);
+        AtomicInteger published = new AtomicInteger();
+        List<Thread> publishers = new ArrayList<>();
+        for (int p = 0; p < PUBLISHERS; p++) {
+            publishers.add(Thread.ofPlatform().start(() -> {
+                int i;
+                while ((i = published.incrementAndGet()) <= EVENTS) {
+                    broadcaster.publishAudit(new AuditLog("agent", "TEST", "evento " + i, "127.0.0.1"));
+                    if (i == EVENTS / 2) halfway.countDown();
+                }
+            }));
+        }
+
+        assertThat(halfway.await(10, TimeUnit.SECONDS)).isTrue();
+        String lastEventId = observer.awaitIds(10).get(9);
+        RecordingEmitter resumed = broadcaster.connect(lastEventId);
+        for (Thread publisher : publishers) publisher.join();
+
+        List<String> ids = resumed.awaitLastSequence(EVENTS);
+        String bootId = lastEventId.substring(0, lastEventId.indexOf('-'));
+        assertThat(ids).containsExactlyElementsOf(
+                LongStream.rangeClosed(11, EVENTS).mapToObj(id -> bootId + "-" + id).toList());
+    }
+
+    @Test
+    void resumeFromUnknownInstance_requestsResync() throws Exception {
+        broadcaster.publishAudit(new AuditLog("agent", "TEST", "evento", "127.0.0.1"));
+
+        RecordingEmitter resumed = broadcaster.connect("altraistanza-1");
+
+        assertThat(resumed.awaitNames(1)).containsExactly(EventBroadcaster.RESYNC);
+    }
+
+    private static final class TestBroadcaster extends EventBroadcaster {
+
+        private RecordingEmitter next;
+
+        TestBroadcaster() {
+            super(new SimpleMeterRegistry(), 2 * EVENTS, 2 * EVENTS, Duration.ofMinutes(1));
+        }
+
+        RecordingEmitter connect(String lastEventId) {
+            next = new RecordingEmitter();
+            subscribe("supervisor", true, lastEventId);
+            return next;
+        }
+
+        @Override
+        SseEmitter createEmitter() {
+            return next;
+        }
+    }
+
+    // Registra id e nomi degli eventi SSE inviati, senza una vera risposta HTTP
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> ids = new CopyOnWriteArrayList<>();
+        private final List<String> names = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String s) text.append(s);
+            }
+            for (String line : text.toString().split("\n")) {
+                if (line.startsWith("id:")) ids.add(line.substring(3));
+                if (line.startsWith("event:")) names.add(line.substring(6));
+            }
+        }
+
+        List<String> awaitIds(int count) throws InterruptedException {
+            await(() -> ids.size() >= count);
+            return ids;
+        }
+
+        List<String> awaitNames(int count) throws InterruptedException {
+            await(() -> names.size() >= count);
+            return names;
+        }
+
+        List<String> awaitLastSequence(long sequence) throws InterruptedException {
+            await(() -> !ids.isEmpty() && ids.get(ids.size() - 1).endsWith("-" + sequence));
+            return ids;
+        }
+
+        private static void await(BooleanSupplier condition) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.dto.MissionDTO;
+import com.aegis.backend.model.AgentProfile;
+import com.aegis.backend.model.Mission;
+import com.aegis.backend.model.MissionNote;
+import com.aegis.backend.model.MissionStatus;
+import com.aegis.backend.repository.AgentProfileRepository;
+import com.aegis.backend.repository.MissionNoteRepository;
+import com.aegis.backend.repository.MissionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MissionAssemblerTest {
+
+    @Mock
+    private MissionRepository missionRepository;
+    @Mock
+    private AgentProfileRepository agentRepository;
+    @Mock
+    private MissionNoteRepository noteRepository;
+
+    @InjectMocks
+    private MissionAssembler assembler;
+
+    // Ogni metodo di repository corrisponde a una query: il conteggio deve restare piatto
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50, 4000})
+    void queryCountDoesNotGrowWithMissionCount(int missionCount) {
+        List<Mission> missions = new ArrayList<>();
+        List<Object[]> assignments = new ArrayList<>();
+        List<MissionNote> notes = new ArrayList<>();
+        for (int i = 0; i < missionCount; i++) {
+            Mission m = mission();
+            missions.add(m);
+            assignments.add(new Object[]{m.getId(), "agent-" + (i % 10)});
+            notes.add(note(m.getId(), "agent-" + (i % 7)));
+        }
+        List<AgentProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            profiles.add(new AgentProfile("agent-" + i, "CODE-" + i, null, 1, null, null, null, null, null));
+        }
+
+        when(missionRepository.findAssignedAgentIds(anyCollection())).thenReturn(assignments);
+        when(noteRepository.findByMissionIdInOrderByTimestampAsc(anyCollection())).thenReturn(notes);
+        when(agentRepository.loadAllById(anyCollection())).thenReturn(profiles);
+
+        List<MissionDTO> result = assembler.toDTOs(missions, true);
+
+        assertThat(result).hasSize(missionCount);
+        verify(missionRepository, times(1)).findAssignedAgentIds(anyCollection());
+        verify(noteRepository, times(1)).findByMissionIdInOrderByTimestampAsc(anyCollection());
+        verify(agentRepository, times(1)).loadAllById(anyCollection());
+        verifyNoMoreInteractions(missionRepository, noteRepository, agentRepository);
+    }
+
+    @Test
+    void resolvesAgentsAndNoteAuthorsFromBatch() {
+        Mission m = mission();
+        when(missionRepository.findAssignedAgentIds(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{m.getId(), "analyst-doe"}, new Object[]{m.getId(), "ghost"}));
+        when(noteRepository.findByMissionIdInOrderByTimestampAsc(anyCollection()))
+                .thenReturn(List.of(note(m.getId(), "analyst-doe")));
+        when(agentRepository.loadAllById(anyCollection()))
+                .thenReturn(List.of(new AgentProfile("analyst-doe", "Recluta", null, 1, "doe@aegis", "John Doe", null, null, null)));
+
+        MissionDTO dto = assembler.toDTO(m, false);
+
+        assertThat(dto.assignedAgentIds()).containsExactlyInAnyOrder("analyst-doe", "ghost");
+        assertThat(dto.assignedAgentsDetails())
+                .extracting(a -> a.codeName())
+                .containsExactlyInAnyOrder("Recluta", "Sconosciuto (ghost)");
+        // Chi non è Supervisor non vede i dati anagrafici
+        assertThat(dto.assignedAgentsDetails()).allMatch(a -> a.fullName() == null);
+        assertThat(dto.notes()).singleElement().extracting(n -> n.authorCodeName()).isEqualTo("Recluta");
+    }
+
+    private static Mission mission() {
+        Mission m = new Mission();
+        m.setId(UUID.randomUUID());
+        m.setDescription("Operazione");
+        m.setGeographicZone("Zona");
+        m.setClearanceLevel(1);
+        m.setStatus(MissionStatus.DRAFT);
+        return m;
+    }
+
+    private static MissionNote note(UUID missionId, String authorId) {
+        MissionNote n = new MissionNote("Nota", authorId, missionId);
+        n.setId(UUID.randomUUID());
+        return n;
+    }
+}
@@ -0,0 +1,127 @@
+package com.aegis.backend.service;
+
+import com.aegis.backend.security.CryptoEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WatermarkCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private WatermarkCache cache;
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    private WatermarkCache cache() {
+        cache = new WatermarkCache(new SimpleMeterRegistry(), new CryptoEngine("AegisIntelSecret", 1024),
+                1024 * 1024, directory.toString());
+        return cache;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (cache != null) cache.clear();
+    }
+
+    @Test
+    void concurrentRequests_renderOnce() throws Exception {
+        WatermarkCache cache = cache();
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        WatermarkCache.Renderer slow = out -> {
+            renders.incrementAndGet();
+            await(release);
+            out.write(bytes("marcato"));
+        };
+
+        List<Future<String>> downloads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) downloads.add(pool.submit(() -> download(cache, "a.pdf", "agent", slow)));
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> download : downloads) assertThat(download.get(5, TimeUnit.SECONDS)).isEqualTo("marcato");
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    void slowRender_doesNotBlockOtherKeys() throws Exception {
+        WatermarkCache cache = cache();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slow = pool.submit(() -> download(cache, "a.pdf", "agent", out -> {
+            await(release);
+            out.write(bytes("lento"));
+        }));
+
+        // Un'altra chiave viene servita mentre il primo rendering è ancora in corso
+        Future<String> other = pool.submit(() -> download(cache, "b.pdf", "agent", out -> out.write(bytes("veloce"))));
+        assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("veloce");
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("lento");
+    }
+
+    @Test
+    void failedRender_isNotCached() throws Exception {
+        WatermarkCache cache = cache();
+
+        assertThatThrownBy(() -> download(cache, "a.pdf", "agent", out -> {
+            throw new IOException("pdf corrotto");
+        })).isInstanceOf(IOException.class).hasMessage("pdf corrotto");
+
+        assertThat(download(cache, "a.pdf", "agent", out -> out.write(bytes("ok")))).isEqualTo("ok");
+    }
+
+    @Test
+    void invalidate_dropsEveryIdentityOfTheFile() throws Exception {
+        WatermarkCache cache = cache();
+        AtomicInteger renders = new AtomicInteger();
+        WatermarkCache.Renderer renderer = out -> out.write(bytes("v" + renders.incrementAndGet()));
+
+        download(cache, "a.pdf", "agent", renderer);
+        download(cache, "a.pdf", "altro", renderer);
+        assertThat(download(cache, "a.pdf", "agent", renderer)).isEqualTo("v1");
+
+        cache.invalidate("a.pdf");
+
+        assertThat(download(cache, "a.pdf", "agent", renderer)).isEqualTo("v3");
+    }
+
+    private static String download(WatermarkCache cache, String filename, String identity,
+                                   WatermarkCache.Renderer renderer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.write(filename, identity, renderer, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) throw new IOException("timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package com.aegis.backend.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemAttachmentStoreTest {
+
+    private static final String NAME = "a".repeat(64) + ".pdf";
+
+    @TempDir
+    Path root;
+
+    private FileSystemAttachmentStore store() {
+        return new FileSystemAttachmentStore(root.toString(), "immediate");
+    }
+
+    @Test
+    void writeReadTouchDelete() throws Exception {
+        FileSystemAttachmentStore store = store();
+        assertThat(store.exists(NAME)).isFalse();
+
+        store.write(NAME, content("cifrato"));
+        assertThat(store.exists(NAME)).isTrue();
+        assertThat(read(store, NAME)).isEqualTo("cifrato");
+
+        // Il touch riporta il blob dentro il periodo di grazia del garbage collector
+        Path file = shardedPath(NAME);
+        Instant old = Instant.now().minus(Duration.ofDays(1));
+        Files.setLastModifiedTime(file, FileTime.from(old));
+        store.touch(NAME);
+        assertThat(Files.getLastModifiedTime(file).toInstant()).isAfter(old.plus(Duration.ofHours(23)));
+
+        store.delete(NAME);
+        assertThat(store.exists(NAME)).isFalse();
+        assertThatThrownBy(() -> store.openRead(NAME)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void write_usesShardLayoutFromNameHash() throws Exception {
+        store().write(NAME, content("x"));
+
+        // <root>/ab/cd/<nome>, con "abcd" = primi due byte dello SHA-256 del nome
+        assertThat(shardedPath(NAME)).isRegularFile();
+        assertThat(root.relativize(shardedPath(NAME)).getNameCount()).isEqualTo(3);
+        assertThat(root.resolve(NAME)).doesNotExist();
+    }
+
+    @Test
+    void write_replacesExistingBlobAtomically() throws Exception {
+        FileSystemAttachmentStore store = store();
+        store.write(NAME, content("prima"));
+
+        store.write(NAME, content("dopo"));
+
+        assertThat(read(store, NAME)).isEqualTo("dopo");
+        assertThat(filesUnder(root)).containsExactly(shardedPath(NAME));
+    }
+
+    @Test
+    void failedWrite_leavesPreviousBlobAndNoTempFiles() throws Exception {
+        FileSystemAttachmentStore store = store();
+        store.write(NAME, content("integro"));
+
+        assertThatThrownBy(() -> store.write(NAME, channel -> {
+            channel.write(ByteBuffer.wrap("parziale".getBytes(StandardCharsets.UTF_8)));
+            throw new IOException("disco pieno");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(read(store, NAME)).isEqualTo("integro");
+        assertThat(filesUnder(root)).containsExactly(shardedPath(NAME));
+    }
+
+    @Test
+    void list_includesShardedAndLegacyBlobs_butNotTempFiles() throws Exception {
+        FileSystemAttachmentStore store = store();
+        store.write(NAME, content("nuovo"));
+        Files.writeString(root.resolve("SECURE_vecchio.pdf"), "legacy");
+        Files.writeString(shardedPath(NAME).resolveSibling("upload_123.tmp"), "in corso");
+
+        try (Stream<StoredBlob> blobs = store.list()) {
+            assertThat(blobs.map(StoredBlob::name)).containsExactlyInAnyOrder(NAME, "SECURE_vecchio.pdf");
+        }
+        assertThat(read(store, "SECURE_vecchio.pdf")).isEqualTo("legacy");
+    }
+
+    @Test
+    void list_skipsOtherDirectoriesUnderRoot() throws Exception {
+        FileSystemAttachmentStore store = store();
+        store.write(NAME, content("nuovo"));
+        // Cache dei watermark (default: uploads/.watermark-cache) e altre cartelle non sono allegati
+        Path cache = Files.createDirectories(root.resolve(".watermark-cache").resolve("ab").resolve("cd"));
+        Files.writeString(cache.resolve("wm_1.bin"), "x");
+        Files.writeString(Files.createDirectories(root.resolve("ab")).resolve("orfano.pdf"), "x");
+
+        try (Stream<StoredBlob> blobs = store.list()) {
+            assertThat(blobs.map(StoredBlob::name)).containsExactly(NAME);
+        }
+    }
+
+    @Test
+    void invalidName_isRejected() {
+        assertThatThrownBy(() -> store().exists("../fuori.pdf")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store().write(".nascosto", content("x"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Path shardedPath(String name) throws NoSuchAlgorithmException {
+        String shard = HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8)), 0, 2);
+        return root.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(name);
+    }
+
+    private static AttachmentStore.BlobWriter content(String text) {
+        return channel -> channel.write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String read(AttachmentStore store, String name) throws IOException {
+        try (InputStream in = Channels.newInputStream(store.openRead(name))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<Path> filesUnder(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.aegis.backend.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LinkDetectorTest {
+
+    // Definizione di riferimento (solo per input brevi): deve coincidere con la scansione lineare
+    private static final Pattern REFERENCE = Pattern.compile(
+            "(?i)(?:[a-z0-9]://\\S|(?<![a-z0-9])www\\d{0,3}\\.\\S|(?<![a-z0-9.-])[a-z0-9.-]+\\.[a-z]{2,}/)");
+    private static final Pattern REFERENCE_STRICT = Pattern.compile(
+            "(?i)(?:[a-z0-9]://\\S|(?<![a-z0-9])www\\d{0,3}\\.\\S|(?<![a-z0-9.-])[a-z0-9.-]+\\.[a-z]{2,}/|http|ftp|www\\.)");
+
+    private static final String[] FRAGMENTS = {
+            "a", "W", "x", "1", "9", ".", "-", "/", ":", "//", " ", "\n", "http", "ftp", "www", "com", "Org", "é", "_", "("
+    };
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "vedi https://example.org",
+            "HTTP://EXAMPLE.ORG",
+            "ftp://files.local/x",
+            "apri www.example.org",
+            "www2.example.org",
+            "rapporto su example.com/report",
+            "intel.gov.it/archivio",
+            "riga 1\nhttps://example.org"
+    })
+    void detectsLinks(String text) {
+        assertThat(LinkDetector.containsLink(text)).isTrue();
+        assertThat(LinkDetector.containsLinkStrict(text)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Contatto confermato al punto di raccolta.",
+            "versione 1.2/3",
+            "orario 10:30, rientro previsto",
+            "awww.example",
+            "fine frase. Nuova frase",
+            "http:// "
+    })
+    void ignoresPlainText(String text) {
+        assertThat(LinkDetector.containsLink(text)).isFalse();
+    }
+
+    @Test
+    void strictModeFlagsBareFragments() {
+        assertThat(LinkDetector.containsLinkStrict("protocollo http non ammesso")).isTrue();
+        assertThat(LinkDetector.containsLinkStrict("server FTP interno")).isTrue();
+        assertThat(LinkDetector.containsLink("protocollo http non ammesso")).isFalse();
+    }
+
+    @Test
+    void agreesWithReferenceOnRandomInput() {
+        Random random = new Random(20240601);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int pieces = random.nextInt(12);
+            for (int p = 0; p < pieces; p++) {
+                text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String input = text.toString();
+            assertThat(LinkDetector.containsLink(input))
+                    .as("input: [%s]", input)
+                    .isEqualTo(REFERENCE.matcher(input).find());
+            assertThat(LinkDetector.containsLinkStrict(input))
+                    .as("strict input: [%s]", input)
+                    .isEqualTo(REFERENCE_STRICT.matcher(input).find());
+        }
+    }
+
+    // Input costruiti per il backtracking del vecchio URL_PATTERN: qui devono restare lineari
+    @ParameterizedTest
+    @ValueSource(strings = {"a.", "www", "http:/", "a-", "(a", "x.co"})
+    void adversarialInputIsLinear(String unit) {
+        String text = unit.repeat(2_000_000 / unit.length()) + "!";
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            LinkDetector.containsLink(text);
+            LinkDetector.containsLinkStrict(text);
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.aegis.backend.validation;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfContentDetectorTest {
+
+    private final PdfContentDetector detector = new PdfContentDetector();
+
+    @Test
+    void validPdf_isAccepted() throws IOException {
+        assertThat(detector.isPdf(upload(realPdf()))).isTrue();
+    }
+
+    @Test
+    void pdfWithTrailerFarFromEnd_isAcceptedByTikaFallback() throws IOException {
+        // Dati accodati dopo %%EOF (es. firma digitale incrementale mal formata): il trailer esce dall'ultimo KiB
+        byte[] pdf = realPdf();
+        byte[] padded = Arrays.copyOf(pdf, pdf.length + 2048);
+        Arrays.fill(padded, pdf.length, padded.length, (byte) '\n');
+
+        assertThat(detector.isPdf(upload(padded))).isTrue();
+    }
+
+    @Test
+    void textWithPdfSignatureAfterFirstByte_isRejected() throws IOException {
+        byte[] text = ("Appunti sull'operazione: allegare il file %PDF-1.4 originale.\n" + "riga\n".repeat(50))
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertThat(detector.isPdf(upload(text))).isFalse();
+    }
+
+    @Test
+    void pdfBehindBom_isAccepted() throws IOException {
+        byte[] pdf = realPdf();
+        byte[] withBom = new byte[pdf.length + 3];
+        withBom[0] = (byte) 0xEF;
+        withBom[1] = (byte) 0xBB;
+        withBom[2] = (byte) 0xBF;
+        System.arraycopy(pdf, 0, withBom, 3, pdf.length);
+
+        assertThat(detector.isPdf(upload(withBom))).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "%", "%PD", "%PDF"})
+    void emptyAndTinyFiles_areRejected(String content) throws IOException {
+        assertThat(detector.isPdf(upload(content.getBytes(StandardCharsets.US_ASCII)))).isFalse();
+    }
+
+    @Test
+    void renamedNonPdf_isRejected() throws IOException {
+        // PNG con nome e content-type da PDF: conta solo il contenuto
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+
+        assertThat(detector.isPdf(upload(png))).isFalse();
+    }
+
+    private static MockMultipartFile upload(byte[] content) {
+        return new MockMultipartFile("file", "dossier.pdf", "application/pdf", content);
+    }
+
+    private static byte[] realPdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}